@@ -0,0 +1,795 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ *
+ * AVLBenchmark
+ *
+ * A micro-benchmark harness for AVLTree. Every benchmark is run for a number of
+ * warmup iterations followed by measured iterations, and reports throughput
+ * (ops/s) and average latency (ns/op) for each workload and tree size.
+ *
+ * The "memory" benchmark compares the heap retained per entry by AVLTree and
+ * ArrayAVLTree instead, and the "alloc" benchmark reports the bytes allocated
+ * per AVLTree.insert. The "contention" benchmark runs a mixed workload (90%
+ * search, 5% insert, 5% delete) from 1, 8, 32 and 64 threads against a
+ * synchronized AVLTree, ConcurrentAVLTree with 1 and 16 stripes and
+ * OptimisticAVLTree. "searchAll" does the lookups of "search" in batches of
+ * SEARCH_BATCH, and "bucketSearch" and "frozenSearch" are "search" on a
+ * BucketAVLTree and on a FrozenAVLTree.
+ *
+ * split, join, keysToArray and infoToArray are single calls, so a run makes a
+ * batch of them (see singleOpBatch) on inputs prebuilt by setup. The batch
+ * shrinks as the trees grow, down to one call at 10^6 keys and above; those
+ * sizes run after the smaller ones in the same JVM, so the code is compiled
+ * by then, but they still time few calls per iteration.
+ *
+ * usage: java AVLBenchmark [-bench insert,search,...] [-workload random,zipf,...]
+ * [-sizes 1000,10000,...] [-warmup n] [-iterations n] [-seed n]
+ *
+ */
+public class AVLBenchmark {
+
+	static final String[] ALL_BENCHMARKS = { "insert", "fingerInsert", "fromSorted", "insertAll", "delete", "search", "searchAll",
+			"bucketSearch", "frozenSearch", "split", "join", "keysToArray", "infoToArray" };
+	static final int[] DEFAULT_SIZES = { 1000, 10000, 100000, 1000000, 10000000 };
+	static final int SEARCH_BATCH = 4096; // probes per searchAll call
+	static final int MAX_SINGLE_OP_BATCH = 1024; // calls per split/join/toArray run
+	static final int SINGLE_OP_NODES = 1 << 21; // nodes prebuilt for those calls
+
+	// results are folded into this field so the JIT can't drop the measured calls
+	static volatile long sink;
+
+	/**
+	 * public enum Workload
+	 *
+	 * the order in which keys are fed to the tree. RANDOM, ASCENDING, DESCENDING
+	 * and NEARLY_SORTED (ascending, with every key swapped with one up to 16
+	 * places back, like timestamps arriving slightly out of order) are
+	 * permutations of 1..n; ZIPF draws n keys from 1..n with a Zipf(1.0) skew, so
+	 * small keys repeat often.
+	 */
+	public enum Workload {
+		RANDOM, ASCENDING, DESCENDING, NEARLY_SORTED, ZIPF;
+
+		public int[] keys(int n, Random rnd) {
+			int[] keys = new int[n];
+			switch (this) {
+			case RANDOM:
+				for (int i = 0; i < n; i++) {
+					keys[i] = i + 1;
+				}
+				for (int i = n - 1; i > 0; i--) { // Fisher-Yates shuffle
+					int j = rnd.nextInt(i + 1);
+					int temp = keys[i];
+					keys[i] = keys[j];
+					keys[j] = temp;
+				}
+				break;
+			case ASCENDING:
+				for (int i = 0; i < n; i++) {
+					keys[i] = i + 1;
+				}
+				break;
+			case DESCENDING:
+				for (int i = 0; i < n; i++) {
+					keys[i] = n - i;
+				}
+				break;
+			case NEARLY_SORTED:
+				for (int i = 0; i < n; i++) {
+					keys[i] = i + 1;
+				}
+				for (int i = 1; i < n; i++) {
+					int j = Math.max(0, i - rnd.nextInt(17));
+					int temp = keys[i];
+					keys[i] = keys[j];
+					keys[j] = temp;
+				}
+				break;
+			case ZIPF:
+				ZipfSampler zipf = new ZipfSampler(n, 1.0);
+				for (int i = 0; i < n; i++) {
+					keys[i] = zipf.sample(rnd);
+				}
+				break;
+			}
+			return keys;
+		}
+	}
+
+	/**
+	 * interface Benchmark
+	 *
+	 * setup builds whatever state a single measured run needs (untimed), run
+	 * performs the measured operations and returns how many of them it did.
+	 */
+	interface Benchmark {
+		void setup(int[] keys, Random rnd);
+
+		long run();
+	}
+
+	static Benchmark create(String name) {
+		switch (name) {
+		case "insert":
+			return new Benchmark() {
+				int[] keys;
+
+				public void setup(int[] keys, Random rnd) {
+					this.keys = keys;
+				}
+
+				public long run() {
+					AVLTree tree = new AVLTree();
+					long acc = 0;
+					for (int k : keys) {
+						acc += tree.insert(k, null);
+					}
+					sink += acc;
+					return keys.length;
+				}
+			};
+		case "fingerInsert":
+			return new Benchmark() {
+				int[] keys;
+
+				public void setup(int[] keys, Random rnd) {
+					this.keys = keys;
+				}
+
+				public long run() {
+					AVLTree tree = new AVLTree();
+					long acc = 0;
+					for (int k : keys) {
+						acc += tree.fingerInsert(k, null);
+					}
+					sink += acc;
+					return keys.length;
+				}
+			};
+		case "fromSorted":
+			return new Benchmark() {
+				int[] sorted;
+
+				public void setup(int[] keys, Random rnd) {
+					if (this.sorted == null) {
+						this.sorted = Arrays.stream(keys).sorted().distinct().toArray();
+					}
+				}
+
+				public long run() {
+					sink += AVLTree.fromSorted(sorted, null).size();
+					return sorted.length;
+				}
+			};
+		case "insertAll":
+			return new Benchmark() {
+				int[] batch;
+				AVLTree tree;
+
+				// the batch holds odd keys, so none of them is in a tree of even keys
+				public void setup(int[] keys, Random rnd) {
+					this.batch = new int[keys.length];
+					for (int i = 0; i < keys.length; i++) {
+						this.batch[i] = 2 * keys[i] - 1;
+					}
+					this.tree = new AVLTree();
+					for (int k : Workload.RANDOM.keys(keys.length, rnd)) {
+						this.tree.insert(2 * k, null);
+					}
+				}
+
+				public long run() {
+					sink += tree.insertAll(batch, null);
+					return batch.length;
+				}
+			};
+		case "delete":
+			return new Benchmark() {
+				int[] keys;
+				AVLTree tree;
+
+				public void setup(int[] keys, Random rnd) {
+					this.keys = keys;
+					this.tree = buildTree(keys.length, rnd);
+				}
+
+				public long run() {
+					long acc = 0;
+					for (int k : keys) {
+						acc += tree.delete(k);
+					}
+					sink += acc;
+					return keys.length;
+				}
+			};
+		case "search":
+			return new Benchmark() {
+				int[] keys;
+				AVLTree tree;
+
+				public void setup(int[] keys, Random rnd) {
+					this.keys = keys;
+					if (this.tree == null || this.tree.size() != keys.length) {
+						this.tree = buildTree(keys.length, rnd);
+					}
+				}
+
+				public long run() {
+					long acc = 0;
+					for (int k : keys) {
+						if (tree.search(k) != null) {
+							acc++;
+						}
+					}
+					sink += acc;
+					return keys.length;
+				}
+			};
+		case "searchAll":
+			return new Benchmark() {
+				int[][] batches;
+				int count;
+				String[] out = new String[SEARCH_BATCH];
+				AVLTree tree;
+
+				public void setup(int[] keys, Random rnd) {
+					this.count = keys.length;
+					this.batches = new int[(keys.length + SEARCH_BATCH - 1) / SEARCH_BATCH][];
+					for (int b = 0; b < batches.length; b++) {
+						int from = b * SEARCH_BATCH;
+						batches[b] = Arrays.copyOfRange(keys, from, Math.min(keys.length, from + SEARCH_BATCH));
+					}
+					if (this.tree == null || this.tree.size() != keys.length) {
+						this.tree = buildTree(keys.length, rnd);
+					}
+				}
+
+				public long run() {
+					long acc = 0;
+					for (int[] batch : batches) {
+						tree.searchAll(batch, out);
+						acc += (out[0] != null) ? 1 : 0;
+					}
+					sink += acc;
+					return count;
+				}
+			};
+		case "bucketSearch":
+			return new Benchmark() {
+				int[] keys;
+				BucketAVLTree tree;
+
+				public void setup(int[] keys, Random rnd) {
+					this.keys = keys;
+					if (this.tree == null || this.tree.size() != keys.length) {
+						this.tree = new BucketAVLTree();
+						for (int k : Workload.RANDOM.keys(keys.length, rnd)) {
+							this.tree.insert(k, null);
+						}
+					}
+				}
+
+				public long run() {
+					long acc = 0;
+					for (int k : keys) {
+						if (tree.search(k) != null) {
+							acc++;
+						}
+					}
+					sink += acc;
+					return keys.length;
+				}
+			};
+		case "frozenSearch":
+			return new Benchmark() {
+				int[] keys;
+				FrozenAVLTree tree;
+
+				public void setup(int[] keys, Random rnd) {
+					this.keys = keys;
+					if (this.tree == null || this.tree.size() != keys.length) {
+						this.tree = buildTree(keys.length, rnd).freeze();
+					}
+				}
+
+				public long run() {
+					long acc = 0;
+					for (int k : keys) {
+						if (tree.search(k) != null) {
+							acc++;
+						}
+					}
+					sink += acc;
+					return keys.length;
+				}
+			};
+		case "split":
+			return new Benchmark() {
+				AVLTree[] trees;
+				int[] xs;
+
+				// split takes the tree apart, so every call gets its own copy
+				public void setup(int[] keys, Random rnd) {
+					int count = singleOpBatch(keys.length);
+					this.trees = new AVLTree[count];
+					this.xs = new int[count];
+					for (int j = 0; j < count; j++) {
+						this.trees[j] = buildTree(keys.length, rnd);
+						this.xs[j] = keys[rnd.nextInt(keys.length)];
+					}
+				}
+
+				public long run() {
+					long acc = 0;
+					for (int j = 0; j < trees.length; j++) {
+						AVLTree[] parts = trees[j].split(xs[j]);
+						acc += parts[0].size() + parts[1].size();
+					}
+					sink += acc;
+					return trees.length;
+				}
+			};
+		case "join":
+			return new Benchmark() {
+				AVLTree[] lefts;
+				AVLTree[] rights;
+				AVLTree.IAVLNode[] xs;
+
+				// join consumes both trees, so every call gets its own pair
+				public void setup(int[] keys, Random rnd) {
+					int n = keys.length;
+					int count = singleOpBatch(n);
+					this.lefts = new AVLTree[count];
+					this.rights = new AVLTree[count];
+					this.xs = new AVLTree.IAVLNode[count];
+					for (int j = 0; j < count; j++) {
+						int pivot = keys[rnd.nextInt(n)];
+						AVLTree left = new AVLTree();
+						AVLTree right = new AVLTree();
+						for (int k : Workload.RANDOM.keys(n, rnd)) {
+							if (k < pivot) {
+								left.insert(k, null);
+							} else if (k > pivot) {
+								right.insert(k, null);
+							}
+						}
+						this.lefts[j] = left;
+						this.rights[j] = right;
+						this.xs[j] = left.new AVLNode(pivot, null);
+					}
+				}
+
+				public long run() {
+					long acc = 0;
+					for (int j = 0; j < lefts.length; j++) {
+						acc += lefts[j].join(xs[j], rights[j]);
+					}
+					sink += acc;
+					return lefts.length;
+				}
+			};
+		case "keysToArray":
+			return new Benchmark() {
+				AVLTree tree;
+				int count;
+
+				public void setup(int[] keys, Random rnd) {
+					this.count = singleOpBatch(keys.length);
+					if (this.tree == null || this.tree.size() != keys.length) {
+						this.tree = buildTree(keys.length, rnd);
+					}
+				}
+
+				public long run() {
+					long acc = 0;
+					for (int j = 0; j < count; j++) {
+						acc += tree.keysToArray().length;
+					}
+					sink += acc;
+					return count;
+				}
+			};
+		case "infoToArray":
+			return new Benchmark() {
+				AVLTree tree;
+				int count;
+
+				public void setup(int[] keys, Random rnd) {
+					this.count = singleOpBatch(keys.length);
+					if (this.tree == null || this.tree.size() != keys.length) {
+						this.tree = buildTree(keys.length, rnd);
+					}
+				}
+
+				public long run() {
+					long acc = 0;
+					for (int j = 0; j < count; j++) {
+						acc += tree.infoToArray().length;
+					}
+					sink += acc;
+					return count;
+				}
+			};
+		default:
+			throw new IllegalArgumentException("unknown benchmark: " + name);
+		}
+	}
+
+	/**
+	 * static int singleOpBatch(int n)
+	 *
+	 * how many calls a run of split, join, keysToArray or infoToArray makes on
+	 * trees of n keys, so that one run is long enough to time: as many as fit in
+	 * SINGLE_OP_NODES prebuilt nodes, between 1 and MAX_SINGLE_OP_BATCH.
+	 */
+	static int singleOpBatch(int n) {
+		return Math.max(1, Math.min(MAX_SINGLE_OP_BATCH, SINGLE_OP_NODES / n));
+	}
+
+	// a tree holding 1..n, inserted in random order
+	static AVLTree buildTree(int n, Random rnd) {
+		AVLTree tree = new AVLTree();
+		for (int k : Workload.RANDOM.keys(n, rnd)) {
+			tree.insert(k, null);
+		}
+		return tree;
+	}
+
+	/**
+	 * public static void measure(String name, Workload workload, int n, ...)
+	 *
+	 * runs one benchmark and prints a line with ops/s and ns/op averaged over the
+	 * measured iterations, together with the best and worst iteration.
+	 */
+	public static void measure(String name, Workload workload, int n, int warmup, int iterations, long seed) {
+		Random rnd = new Random(seed);
+		int[] keys = workload.keys(n, rnd);
+		Benchmark bench = create(name);
+
+		for (int i = 0; i < warmup; i++) {
+			bench.setup(keys, rnd);
+			bench.run();
+		}
+
+		long totalOps = 0;
+		long totalNanos = 0;
+		double best = Double.MAX_VALUE;
+		double worst = 0;
+		for (int i = 0; i < iterations; i++) {
+			bench.setup(keys, rnd);
+			long start = System.nanoTime();
+			long ops = bench.run();
+			long nanos = System.nanoTime() - start;
+			double nsPerOp = (double) nanos / ops;
+			best = Math.min(best, nsPerOp);
+			worst = Math.max(worst, nsPerOp);
+			totalOps += ops;
+			totalNanos += nanos;
+		}
+		double avg = (double) totalNanos / totalOps;
+		System.out.printf("%-12s %-10s %10d %16.1f ops/s %12.1f ns/op  (min %.1f, max %.1f)%n", name, workload, n,
+				1e9 / avg, avg, best, worst);
+	}
+
+	/**
+	 * public static void memoryPerEntry(int n)
+	 *
+	 * prints the retained heap per entry of an AVLTree and an ArrayAVLTree holding
+	 * the keys 1..n (the "memory" benchmark).
+	 */
+	public static void memoryPerEntry(int n, long seed) {
+		int[] keys = Workload.RANDOM.keys(n, new Random(seed));
+
+		long before = usedHeap();
+		AVLTree tree = new AVLTree();
+		for (int k : keys) {
+			tree.insert(k, null);
+		}
+		long objects = usedHeap() - before;
+		sink += tree.size();
+		tree = null;
+
+		before = usedHeap();
+		ArrayAVLTree arrayTree = new ArrayAVLTree(n);
+		for (int k : keys) {
+			arrayTree.insert(k, null);
+		}
+		long arrays = usedHeap() - before;
+		sink += arrayTree.size();
+
+		System.out.printf("%-12s %-10s %10d %12.1f B/entry (AVLTree) %12.1f B/entry (ArrayAVLTree)%n", "memory", "RANDOM",
+				n, (double) objects / n, (double) arrays / n);
+	}
+
+	/**
+	 * public static void allocationPerInsert(Workload workload, int n)
+	 *
+	 * prints the bytes allocated by the current thread per AVLTree.insert while
+	 * inserting n keys of the workload into an empty tree (the "alloc"
+	 * benchmark).
+	 */
+	public static void allocationPerInsert(Workload workload, int n, long seed) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory
+				.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		int[] keys = workload.keys(n, new Random(seed));
+
+		AVLTree tree = new AVLTree();
+		long before = threads.getThreadAllocatedBytes(thread);
+		for (int k : keys) {
+			tree.insert(k, null);
+		}
+		long allocated = threads.getThreadAllocatedBytes(thread) - before;
+		sink += tree.size();
+
+		System.out.printf("%-12s %-10s %10d %12.1f B/insert%n", "alloc", workload, n, (double) allocated / n);
+	}
+
+	static final int[] CONTENTION_THREADS = { 1, 8, 32, 64 };
+	static final int CONTENTION_OPS = 1 << 21;
+
+	/**
+	 * public static void contention(int n)
+	 *
+	 * prints the throughput of a mixed workload over the keys 1..2n (half of them
+	 * present at the start) for each thread count and tree (the "contention"
+	 * benchmark). every run does CONTENTION_OPS operations in total.
+	 */
+	public static void contention(int n, long seed) throws InterruptedException {
+		String[] variants = { "synchronized", "stamped", "striped16", "optimistic" };
+		for (String variant : variants) {
+			for (int threads : CONTENTION_THREADS) {
+				final Object tree = newContended(variant, n, new Random(seed));
+				Thread[] workers = new Thread[threads];
+				CountDownLatch start = new CountDownLatch(1);
+				for (int t = 0; t < threads; t++) {
+					final Random rnd = new Random(seed + t);
+					final int ops = CONTENTION_OPS / threads;
+					workers[t] = new Thread(() -> {
+						try {
+							start.await();
+						} catch (InterruptedException e) {
+							return;
+						}
+						long found = 0;
+						for (int i = 0; i < ops; i++) {
+							int k = 1 + rnd.nextInt(2 * n);
+							int op = rnd.nextInt(20);
+							if (op == 0) {
+								found += contendedWrite(tree, k, true);
+							} else if (op == 1) {
+								found += contendedWrite(tree, k, false);
+							} else if (contendedSearch(tree, k) != null) {
+								found++;
+							}
+						}
+						sink += found;
+					});
+					workers[t].start();
+				}
+				long begin = System.nanoTime();
+				start.countDown();
+				for (Thread worker : workers) {
+					worker.join();
+				}
+				long nanos = System.nanoTime() - begin;
+				long ops = (long) (CONTENTION_OPS / threads) * threads;
+				System.out.printf("%-12s %-12s %4d threads %10d %16.1f ops/s%n", "contention", variant, threads, n,
+						ops * 1e9 / nanos);
+			}
+		}
+	}
+
+	// an AVLTree (used under its monitor), ConcurrentAVLTree or OptimisticAVLTree
+	// holding the odd keys of 1..2n
+	private static Object newContended(String variant, int n, Random rnd) {
+		int[] keys = Workload.RANDOM.keys(n, rnd);
+		if (variant.equals("optimistic")) {
+			OptimisticAVLTree tree = new OptimisticAVLTree();
+			for (int k : keys) {
+				tree.insert(2 * k - 1, "v");
+			}
+			return tree;
+		}
+		if (variant.equals("synchronized")) {
+			AVLTree tree = new AVLTree();
+			for (int k : keys) {
+				tree.insert(2 * k - 1, "v");
+			}
+			return tree;
+		}
+		ConcurrentAVLTree tree;
+		if (variant.equals("stamped")) {
+			tree = new ConcurrentAVLTree();
+		} else {
+			int[] bounds = new int[15];
+			for (int i = 0; i < bounds.length; i++) {
+				bounds[i] = 1 + (int) (2L * n * (i + 1) / 16);
+			}
+			tree = new ConcurrentAVLTree(bounds);
+		}
+		for (int k : keys) {
+			tree.insert(2 * k - 1, "v");
+		}
+		return tree;
+	}
+
+	private static String contendedSearch(Object tree, int k) {
+		if (tree instanceof OptimisticAVLTree) {
+			return ((OptimisticAVLTree) tree).search(k);
+		}
+		if (tree instanceof ConcurrentAVLTree) {
+			return ((ConcurrentAVLTree) tree).search(k);
+		}
+		synchronized (tree) {
+			return ((AVLTree) tree).search(k);
+		}
+	}
+
+	private static int contendedWrite(Object tree, int k, boolean insert) {
+		if (tree instanceof OptimisticAVLTree) {
+			OptimisticAVLTree o = (OptimisticAVLTree) tree;
+			return insert ? o.insert(k, "v") : o.delete(k);
+		}
+		if (tree instanceof ConcurrentAVLTree) {
+			ConcurrentAVLTree c = (ConcurrentAVLTree) tree;
+			return insert ? c.insert(k, "v") : c.delete(k);
+		}
+		synchronized (tree) {
+			AVLTree t = (AVLTree) tree;
+			return insert ? t.insert(k, "v") : t.delete(k);
+		}
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		String[] benchmarks = ALL_BENCHMARKS;
+		Workload[] workloads = Workload.values();
+		int[] sizes = DEFAULT_SIZES;
+		int warmup = 10;
+		int iterations = 5;
+		long seed = 42;
+
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			String value = args[i + 1];
+			switch (args[i]) {
+			case "-bench":
+				benchmarks = value.split(",");
+				break;
+			case "-workload":
+				List<Workload> list = new ArrayList<Workload>();
+				for (String w : value.split(",")) {
+					list.add(Workload.valueOf(w.toUpperCase()));
+				}
+				workloads = list.toArray(new Workload[0]);
+				break;
+			case "-sizes":
+				sizes = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+				break;
+			case "-warmup":
+				warmup = Integer.parseInt(value);
+				break;
+			case "-iterations":
+				iterations = Integer.parseInt(value);
+				break;
+			case "-seed":
+				seed = Long.parseLong(value);
+				break;
+			default:
+				throw new IllegalArgumentException("unknown option: " + args[i]);
+			}
+		}
+
+		for (String name : benchmarks) {
+			if (name.equals("memory")) {
+				for (int n : sizes) {
+					memoryPerEntry(n, seed);
+				}
+				continue;
+			}
+			if (name.equals("contention")) {
+				for (int n : sizes) {
+					contention(n, seed);
+				}
+				continue;
+			}
+			if (name.equals("alloc")) {
+				for (Workload workload : workloads) {
+					for (int n : sizes) {
+						allocationPerInsert(workload, n, seed);
+					}
+				}
+				continue;
+			}
+			for (Workload workload : workloads) {
+				for (int n : sizes) {
+					measure(name, workload, n, warmup, iterations, seed);
+				}
+			}
+		}
+	}
+
+	/**
+	 * class ZipfSampler
+	 *
+	 * draws integers from 1..n with P(k) proportional to 1/k^s, using
+	 * rejection-inversion sampling (Hormann & Derflinger) so no table of size n
+	 * is needed.
+	 */
+	static class ZipfSampler {
+		private final int n;
+		private final double s;
+		private final double hIntegralX1;
+		private final double hIntegralN;
+		private final double threshold;
+
+		ZipfSampler(int n, double s) {
+			this.n = n;
+			this.s = s;
+			this.hIntegralX1 = hIntegral(1.5) - 1.0;
+			this.hIntegralN = hIntegral(n + 0.5);
+			this.threshold = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+		}
+
+		int sample(Random rnd) {
+			while (true) {
+				double u = hIntegralN + rnd.nextDouble() * (hIntegralX1 - hIntegralN);
+				double x = hIntegralInverse(u);
+				int k = (int) (x + 0.5);
+				if (k < 1) {
+					k = 1;
+				} else if (k > n) {
+					k = n;
+				}
+				if (k - x <= threshold || u >= hIntegral(k + 0.5) - h(k)) {
+					return k;
+				}
+			}
+		}
+
+		private double h(double x) {
+			return Math.exp(-s * Math.log(x));
+		}
+
+		private double hIntegral(double x) {
+			double logX = Math.log(x);
+			return helper2((1.0 - s) * logX) * logX;
+		}
+
+		private double hIntegralInverse(double x) {
+			double t = x * (1.0 - s);
+			if (t < -1.0) {
+				t = -1.0;
+			}
+			return Math.exp(helper1(t) * x);
+		}
+
+		// log(1 + x) / x, stable around 0
+		private static double helper1(double x) {
+			if (Math.abs(x) > 1e-8) {
+				return Math.log1p(x) / x;
+			}
+			return 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+		}
+
+		// (exp(x) - 1) / x, stable around 0
+		private static double helper2(double x) {
+			if (Math.abs(x) > 1e-8) {
+				return Math.expm1(x) / x;
+			}
+			return 1.0 + x * 0.5 * (1.0 + x * (1.0 / 3.0) * (1.0 + 0.25 * x));
+		}
+	}
+}
@@ -1,1088 +1,2487 @@
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
-
-
-
-
-/**
- *
- * AVLTree
- *
- * An implementation of a AVL Tree with distinct integer keys and info
- *
- */
-
-public class AVLTree {
-
-	private IAVLNode root = null;
-	private IAVLNode min;
-	private IAVLNode max;
-	private IAVLNode virtualLeaf = new AVLNode();
-
-	public int MAXKEY() {
-		return this.max.getKey();
-	}
-	/**
-	 * public boolean empty()
-	 *
-	 * returns true if and only if the tree is empty
-	 *
-	 */
-	public boolean empty() {
-		if (this.root == null){
-			return true;
-		}
-		if (!this.root.isRealNode()) {
-			this.root=null;
-			return true;
-		}
-		return false;
-	}
-
-	/**
-	 * public String search(int k)
-	 *
-	 * returns the info of an item with key k if it exists in the tree otherwise,
-	 * returns null
-	 */
-	public String search(int k) {
-		IAVLNode node = SearchNode(k);
-		if (node!=null && node.isRealNode()) {
-			return node.getValue();
-		}
-		return null;
-	}
-
-	/**
-	 * public int insert(int k, String i)
-	 *
-	 * inserts an item with key k and info i to the AVL tree. the tree must remain
-	 * valid (keep its invariants). returns the number of rebalancing operations, or
-	 * 0 if no rebalancing operations were necessary. promotion/rotation - counted
-	 * as one rebalnce operation, double-rotation is counted as 2. returns -1 if an
-	 * item with key k already exists in the tree.
-	 */
-	public int insert(int k, String i) {
-
-		IAVLNode newNode = new AVLNode(k, i);
-		if (this.empty()||!this.root.isRealNode()) { // insert root
-			this.root = (AVLNode) newNode;
-			this.max = (AVLNode) newNode;
-			this.min = (AVLNode) newNode;
-
-		} else { // tree is not empty
-			
-			if(this.max == null || this.min == null) { //will add logn to complexity but wont change it...
-				this.updatemax(); 
-				this.updatemin();
-			}
-			
-			IAVLNode position = this.findPosition(this.root, k);
-			if (position.getKey() == k) { // key already exists
-				return -1;
-
-			} else if (position.getKey() > k) { // insert as a left child
-				position.setLeft(newNode);
-				if (newNode.getKey() <= this.min.getKey()) {
-					this.min = newNode;
-				}
-
-			} else { // insert as a right child
-				position.setRight(newNode);
-				if (newNode.getKey() >= this.max.getKey()) {
-					this.max = newNode;
-				}
-			}
-			newNode.setParent(position);
-		}
-		int rebalanceNum = rebalance(newNode);
-		newNode.updatePath();
-		return rebalanceNum;
-
-	}
-
-	public int rebalance(IAVLNode node) {
-		int cnt = 0;
-		while (node != null) {
-			
-			AVLNode newNode = (AVLNode) node;
-
-			if (newNode.rankDiffLeft() == 0) { // problem with left subtree
-				if (newNode.rankDiffRight() == 1) { // case 1: node-01, not terminal
-					newNode.promote(); // sol: promote
-					cnt++;
-				} else {
-					if (newNode.getLeft().rankDiffLeft() == 1 && // case 2: node-02 with child-12, terminal
-							newNode.getLeft().rankDiffRight() == 2) {
-
-						newNode.demote(); // sol: demote + right rotate
-						node = this.rotateRight(newNode);
-						cnt += 2;
-
-					} else if(newNode.getLeft().rankDiffRight() == 1 && 
-							newNode.getLeft().rankDiffLeft() == 2){ // case3: node-02 with child-21, terminal
-						newNode.demote(); // sol: demote + left rotation + right rotation
-						newNode.getLeft().demote();
-						node = this.rotateLeft(newNode.getLeft());
-						node.promote();
-						node = this.rotateRight(newNode);
-						cnt += 5;
-					}
-					else { 	//this case is used only in join!!!!
-						newNode.getLeft().promote();
-						node = this.rotateRight(newNode);
-					}
-				}
-			}
-
-			else if (newNode.rankDiffRight() == 0) { // problem with right subtree
-				if (newNode.rankDiffLeft() == 1) { // case 1: node-01, not terminal
-					newNode.promote(); // sol: promote
-					cnt++;
-				} else {
-					if (newNode.getRight().rankDiffLeft() == 2 && // case2: node-20 with child-12, terminal
-							newNode.getRight().rankDiffRight() == 1) {
-
-						newNode.demote(); // sol: demote + left rotate
-						node = this.rotateLeft(newNode);
-						cnt += 2;
-
-					} else if(newNode.getRight().rankDiffRight() == 2 &&
-							newNode.getRight().rankDiffLeft() == 1) { // case3: node-02 with child-21, terminal
-						newNode.demote(); // sol: demote + right rotation + left rotation
-						newNode.getRight().demote();
-						node = this.rotateRight(newNode.getRight());
-						node.promote();
-						node = this.rotateLeft(newNode);
-						cnt += 5;
-					}
-					else { 	//this case is used only in join!!!!
-						newNode.getRight().promote();
-						node = this.rotateLeft(newNode);
-					}
-
-				}
-
-			}
-			node = node.getParent();
-		}
-		return cnt;
-	}
-
-
-	/**
-	 * public int delete(int k)
-	 *
-	 * deletes an item with key k from the binary tree, if it is there; the tree
-	 * must remain valid (keep its invariants). returns the number of rebalancing
-	 * operations, or 0 if no rebalancing operations were needed. demotion/rotation
-	 * - counted as one rebalnce operation, double-rotation is counted as 2. returns
-	 * -1 if an item with key k was not found in the tree.
-	 */
-	public int delete(int k) {
-		if (this.search(k)==null) {
-			// there is no key with value k in the tree
-			return -1;}
-		// first, we need to check if we're deleting a saved field(min/max)
-		int [] binaryminmax= {0,0};
-		if (this.min.getKey()==k) {
-			binaryminmax[0]=1;}
-		if (this.max.getKey()==k) {
-			binaryminmax[1]=1;}
-		// initializing a counter for rebalancing actions
-		int[] counter = {0};
-		//starting recursive function
-		this.root=DelRec(k, this.root, counter);
-		if (this.root==virtualLeaf) {
-			//the tree is empty
-			this.root = null;
-		}
-		// update lost values 
-		if (binaryminmax[0]==1) {
-			updatemin();}
-		if (binaryminmax[1]==1) {
-			updatemax();}
-		return counter[0];
-		}
-	
-	// a recursive deletion function, returns the node on the right/left with it's subtree balanced and without node k
-	private IAVLNode DelRec(int k,IAVLNode root, int[] counter) {
-		// First we find the node recursively
-		if (!root.isRealNode()) {
-			return root;} 			// recursion end
-		if (root.getKey()>k) {		
-			// we need to turn left
-			root.setLeft(DelRec(k, root.getLeft(), counter));}
-		if (root.getKey()<k) {		
-			// we need to turn right
-			root.setRight(DelRec(k, root.getRight(), counter));}
-		if(root.getKey()==k) {		
-			// we found the node to delete!
-			if (!root.getLeft().isRealNode() || !root.getRight().isRealNode()) {
-				// node has one or zero sons
-				IAVLNode temp = virtualLeaf;
-				if (root.getLeft().isRealNode()) { // we need to find if the node has a real son
-					temp = root.getLeft();
-				}else {
-					temp = root.getRight();
-				}
-				if (!temp.isRealNode()) {
-					// root doesn't have kids
-					root= virtualLeaf;
-				}else {
-					temp.setParent(root.getParent());
-					root= temp;
-				}
-			}else {
-				//node has two sons
-				// first we'll find it's successor
-				IAVLNode successor = successor(root);
-				// now lets switch them
-				Switch(root, successor);
-				// now the root and it's successor are switched. lets delete the the root node from the right subtree recursively
-				successor.setRight(DelRec(k, successor.getRight(), counter));
-				root = successor;
-			}
-		}
-			
-			if(!root.isRealNode()) {		// this means our tree only had one node
-				return root;
-			}
-			
-			// update the height anvd size of the node
-			root.setHeight(Math.max(root.getLeft().getHeight(), root.getRight().getHeight())+1);
-			root.setSize(root.getLeft().getSize()+ root.getRight().getSize()+1);
-
-			// let's check if we need to rebalance our subtree
-			int rdl = root.rankDiffLeft();
-			int rdr = root.rankDiffRight();
-			
-			if (rdl==2 && rdr==2) {
-				root.demote();
-				counter[0]+=1;
-				return root;
-			}
-			if (rdl==2 && rdr==1) {
-				return root;
-			}
-			if (rdl==1 && rdr==2) {
-				return root;
-			}
-			if (rdl==3 && rdr==1) {
-				IAVLNode y = root.getRight();
-				if(y.rankDiffLeft()==1 && y.rankDiffRight()==1) {
-					Lrotate(y);
-					root.demote();
-					y.promote();
-					counter[0]+=3;
-					return y;
-				}
-				if(y.rankDiffLeft()==1 && y.rankDiffRight()==2) {
-					Lrotate(Rrotate(y.getLeft()));
-					root.demote();
-					root.demote();
-					y.demote();
-					y.getParent().promote();
-					counter[0]+=6;
-					return y.getParent();
-				}
-				if(y.rankDiffLeft()==2 && y.rankDiffRight()==1) {
-					Lrotate(y);
-					root.demote();
-					root.demote();
-					counter[0]+=3;
-					return y;
-				}
-				
-			}
-			if (rdl==1 && rdr==3) {
-				IAVLNode y = root.getLeft();
-				if(y.rankDiffLeft()==1 && y.rankDiffRight()==1) {
-					Rrotate(y);
-					root.demote();
-					y.promote();
-					counter[0]+=3;
-					return y;
-				}
-				if(y.rankDiffLeft()==2 && y.rankDiffRight()==1) {
-					Rrotate(Lrotate(y.getRight()));
-					root.demote();
-					root.demote();
-					y.demote();
-					y.getParent().promote();
-					counter[0]+=6;
-					return y.getParent();
-				}
-				if(y.rankDiffLeft()==1 && y.rankDiffRight()==2) {
-					Rrotate(y);
-					root.demote();
-					root.demote();
-					counter[0]+=3;
-					return y;
-				}
-				
-			}
-			
-			// no need for rotations :)
-			return root;
-		
-	}
-
-		private IAVLNode Lrotate(IAVLNode y) {
-			IAVLNode z = y.getParent();
-			IAVLNode b = y.getRight();
-			IAVLNode a = y.getLeft();
-			IAVLNode x = z.getLeft();
-			// start rotation
-			if (z.getParent()!= null) {
-				if (z.getParent().getLeft()==z) {
-					z.getParent().setLeft(y);
-				}else {
-					z.getParent().setRight(y);
-				}
-			}
-			y.setParent(z.getParent());
-			z.setRight(a);
-			a.setParent(z);
-			y.setLeft(z);
-			z.setParent(y);
-			IAVLNode[] list = {a,b,z,x,y};
-			for (IAVLNode node : list) {
-				if (node.isRealNode()) {
-					node.update();}
-			}
-			return y;
-		}
-	
-	private IAVLNode Rrotate(IAVLNode y) {
-		IAVLNode z = y.getParent();
-		IAVLNode b = y.getLeft();
-		IAVLNode a = y.getRight();
-		IAVLNode x = z.getRight();
-		// start rotation
-		if (z.getParent()!= null) {
-			if (z.getParent().getLeft()==z) {
-				z.getParent().setLeft(y);
-			}else {
-				z.getParent().setRight(y);
-			}
-		}
-		y.setParent(z.getParent());
-		z.setLeft(a);
-		a.setParent(z);
-		y.setRight(z);
-		z.setParent(y);
-		IAVLNode[] list = {a,b,z,x,y};
-		for (IAVLNode node : list) {
-			if (node.isRealNode()) {
-				node.update();}
-		}
-		return y;
-	}
-
-	private void Switch(IAVLNode n, IAVLNode s) {
-		if (n.getRight()==s) {
-			if (this.getRoot()==n) {
-				s.setParent(null);
-				this.root = s;
-				n.setParent(s);
-			}else {
-				s.setParent(n.getParent());
-				n.setParent(s);
-			}
-
-			n.setRight(s.getRight());
-			s.setRight(n);
-			IAVLNode temp = s.getLeft();
-			s.setLeft(n.getLeft());
-			n.setLeft(temp);
-			s.getLeft().setParent(s);
-			n.getLeft().setParent(n);
-		}else {
-			//switching left sons
-			IAVLNode temp = s.getLeft();
-			s.setLeft(n.getLeft());
-			n.setLeft(temp);
-			s.getLeft().setParent(s);
-			n.getLeft().setParent(n);
-			//switching Right sons
-			temp = s.getRight();
-			s.setRight(n.getRight());
-			n.setRight(temp);
-			s.getRight().setParent(s);
-			n.getRight().setParent(n);
-			//switching Parents
-			temp = s.getParent();
-			if (this.getRoot()==n) {
-				s.setParent(null);
-				this.root = s;
-			}else {
-				s.setParent(n.getParent());
-				if (s.getParent().getKey()>n.getKey()) {
-					s.getParent().setLeft(s);
-				}else {
-					s.getParent().setRight(s);
-				}
-			}
-			n.setParent(temp);
-			if (temp==null) {
-				//it means s was the root!
-				this.root= n;
-			}else {
-				if (n.getParent().getKey()>s.getKey()) {
-					n.getParent().setLeft(n);
-				}else {
-					n.getParent().setRight(n);
-				}
-			}
-		}
-		
-	}
-
-		private IAVLNode successor(IAVLNode node) { // returns the successor of node
-			node = node.getRight();
-		while (node.getLeft().isRealNode()) {
-			node = node.getLeft();
-		}
-		return node;
-	}
-
-
-	/**
-	 * SearchNode(int k):
-	 * @param int k
-	 * @return node with key == k or null if there is no such node in the tree
-	 */
-	private IAVLNode SearchNode(int k) {
-		if (this.empty()){
-			return null;
-		}
-		IAVLNode node = this.getRoot();
-		while (node.isRealNode()) {
-			if (node.getKey() == k) {
-				return node;
-			}
-			if (node.getKey() > k) {
-				node = node.getLeft();
-			} else {
-				node = node.getRight();
-			}
-		}
-		return null;
-	}
-
-	/**
-	 * public String min()
-	 *
-	 * Returns the info of the item with the smallest key in the tree, or null if
-	 * the tree is empty
-	 */
-	public String min() {
-		if (this.empty()) { // tree is empty
-			return null;
-		}
-		return this.min.getValue();
-	}
-
-	/**
-	 * public String max()
-	 *
-	 * Returns the info of the item with the largest key in the tree, or null if the
-	 * tree is empty
-	 */
-	public String max() {
-		if (this.empty()) { // tree is empty
-			return null;
-		}
-		return this.max.getValue(); // this is a saved field in our data structure :)
-	}
-	/**
-	 * public void updatemax()
-	 * 
-	 * calculates the max key out of our tree and sets the corresponding field if
-	 * the tree is empty, it sets it to null
-	 * @return 
-	 */
-	public void updatemax() {
-		if (this.empty()) {
-			this.max = virtualLeaf;
-			return;
-
-		}
-		IAVLNode node = this.getRoot();
-		IAVLNode max = null;
-		while (node.isRealNode()) {
-			max = node;
-			node = node.getRight();
-		}
-		this.max = max;
-	}
-
-	/**
-	 * public void updatemin()
-	 * 
-	 * calculates the minimal key out of our tree and sets the corresponding field
-	 * if the tree is empty, it sets it to null
-	 */
-
-	public void updatemin() {
-		if (this.empty()) {
-			this.min = virtualLeaf;
-			return;
-		}
-		IAVLNode node = this.getRoot();
-		IAVLNode min = null;
-		while (node.isRealNode()) {
-			min = node;
-			node = node.getLeft();
-		}
-		this.min = min;
-	}
-
-	/**
-	 * public int[] keysToArray()
-	 *
-	 * Returns a sorted array which contains all keys in the tree, or an empty array
-	 * if the tree is empty.
-	 */
-	public int[] keysToArray() {
-		
-		int[] keysArray = new int[0];
-
-		if (this.empty()) {
-			return keysArray;
-		}
-		
-		keysArray = new int[this.getRoot().getSize()];
-		
-		List<IAVLNode> inOrderNodeList = new LinkedList<IAVLNode>();
-		this.inOrderList(this.getRoot(), inOrderNodeList);
-
-		int i = 0;
-		for (IAVLNode node : inOrderNodeList) {
-			keysArray[i] = node.getKey();
-			i++;
-		}
-		return keysArray;
-	}
-	
-
-	/**
-	 * private void inOrderList(IAVLNode node, List<IAVLNode> inOrderNodeList)
-	 *
-	 * adds nodes to a linked list, in an "in order walk" order
-	 */
-	
-	private void inOrderList(IAVLNode node, List<IAVLNode> inOrderNodeList) {
-
-		if (!node.isRealNode()) {
-			return;
-		}
-		this.inOrderList(node.getLeft(), inOrderNodeList);
-		inOrderNodeList.add(node);
-		this.inOrderList(node.getRight(), inOrderNodeList);
-
-	}
-
-	/**
-	 * public String[] infoToArray()
-	 *
-	 * Returns an array which contains all info in the tree, sorted by their
-	 * respective keys, or an empty array if the tree is empty.
-	 */
-	public String[] infoToArray() {
-		
-		String[] infoArray = new String[0];
-		
-		if (this.empty() == true) {
-			return infoArray;
-		}
-		
-		infoArray = new String[this.getRoot().getSize()];
-
-		List<IAVLNode> inOrderNodeList = new LinkedList<IAVLNode>();
-		this.inOrderList(this.getRoot(), inOrderNodeList);
-
-		int i = 0;
-		for (IAVLNode node : inOrderNodeList) {
-			infoArray[i] = node.getValue();
-			i++;
-		}
-		return infoArray;
-	}
-
-	/**
-	 * public int size()
-	 *
-	 * Returns the number of nodes in the tree.
-	 *
-	 * precondition: none postcondition: none
-	 */
-	public int size() {
-		if (this.empty()) {
-			return 0;
-		}
-		return this.root.getSize();
-	}
-
-	/**
-	 * public int getRoot()
-	 *
-	 * Returns the root AVL node, or null if the tree is empty
-	 *
-	 * precondition: none postcondition: none
-	 */
-	public IAVLNode getRoot() {
-		return this.root;
-	}
-
-	// returns the height of the tree, 0 if it's empty
-	public int getHeight() {
-		if (this.empty()) {
-			return 0;
-		}
-		return this.getRoot().getHeight();
-	}
-
-	/**
-	 * public string split(int x)
-	 *
-	 * splits the tree into 2 trees according to the key x. Returns an array [t1,
-	 * t2] with two AVL trees. keys(t1) < x < keys(t2). precondition: search(x) !=
-	 * null (i.e. you can also assume that the tree is not empty) postcondition:
-	 * none
-	 */
-	public AVLTree[] split(int x) {
-		IAVLNode xNode = findPosition(this.getRoot(),x);
-		return this.split(x, xNode);
-	}
-	
-	private AVLTree[] split(int x, IAVLNode node) {
-		IAVLNode pNode = node;
-		AVLTree[] result = new AVLTree[2];
-
-		result[0] = new AVLTree();	//smaller than x
-		result[1] = new AVLTree();	//bigger than x
-		
-		//set x's right and left subtrees as the base of the 2 new trees
-		if(node.getLeft().isRealNode()) {
-			result[0].root = node.getLeft();
-		}
-		if(node.getRight().isRealNode()) {
-			result[1].root = node.getRight();
-		}
-		pNode = node.getParent();
-		
-		//disconnect x's children + parent
-		disconnectNode(node);
-		
-		while(pNode != null) {
-			IAVLNode duplicatePNode = new AVLNode(pNode.getKey(), pNode.getValue());
-			
-			//adding to the smaller tree
-			if(pNode.getKey() < x) {
-				AVLTree smaller = new AVLTree();
-				if(pNode.getLeft().isRealNode()) {
-					smaller.root = pNode.getLeft();
-					smaller.root.setParent(null);
-				}
-				result[0].join(duplicatePNode, smaller);
-				
-			}else {
-				//adding to the bigger tree
-				AVLTree bigger = new AVLTree();
-				if(pNode.getRight().isRealNode()) {
-					bigger.root = pNode.getRight();
-					bigger.root.setParent(null);
-				}
-				result[1].join(duplicatePNode, bigger);
-			}
-			
-			pNode = pNode.getParent();
-			}
-		
-		return result;
-		
-	}	
-	
-	private void disconnectNode(IAVLNode node){
-		node.getLeft().setParent(null);
-		node.getRight().setParent(null);
-		node.setLeft(new AVLNode());
-		node.setRight(new AVLNode());
-		node.setParent(null);
-		
-	}
-	/**
-	 * public join(IAVLNode x, AVLTree t)
-	 *
-	 * joins t and x with the tree. Returns the complexity of the operation
-	 * (|tree.rank - t.rank| + 1). precondition: keys(x,t) < keys() or keys(x,t) >
-	 * keys(). t/tree might be empty (rank = -1). postcondition: none
-	 */
-	public int join(IAVLNode x, AVLTree t) {
-	int valtoreturn = Math.abs(this.getHeight()-t.getHeight()) +1;
-	
-	if (t.empty() && this.empty()) {
-		this.max = x;
-		this.min = x;
-		this.insert(x.getKey(), x.getValue());
-		return valtoreturn;
-	}
-	else if (t.empty()||!t.root.isRealNode()) {
-		// t is empty. we can just insert x to this
-		this.insert(x.getKey(), x.getValue());
-		return valtoreturn;
-	
-	}else if (this.empty()) {
-		// tree is empty. we can just insert x to t and set tree.root <--- t.root
-		this.root = t.root;
-		this.max = t.max;
-		this.min = t.min;
-		this.insert(x.getKey(), x.getValue());
-		return valtoreturn;
-	}
-	// t && tree are not empty
-	
-	// lets check which tree should be on which side
-	AVLTree Rtree;
-	AVLTree Ltree;
-	if (this.getRoot().getKey()>x.getKey()) {
-		Rtree = this;
-		Ltree = t;
-	}else {
-		Ltree = this;
-		Rtree = t;
-	}
-	// now lets check which tree is higher
-	int heightdiff = Rtree.getRoot().getHeight() - Ltree.getRoot().getHeight();
-	if (heightdiff <= 1 && heightdiff >= -1) {
-		//trees are equal in height
-		x.setRight(Rtree.getRoot());
-		x.setLeft(Ltree.getRoot());
-		this.root=x;
-		x.update();
-		this.max = Rtree.max;
-		this.min = Ltree.min;
-		return 1;
-		
-	}else if (heightdiff > 0) {
-		//Rtree is taller than Ltree
-		IAVLNode temp = null;
-		temp = Rtree.root; 
-		while (temp.getHeight()>Ltree.getRoot().getHeight()) {
-//			if (temp.getLeft().isRealNode()) {
-				temp = temp.getLeft();
-//			}			
-		}
-		
-		/* set x to be:
-		 *  	         temp.parent
-		 *	     		/
-		 *      	   x
-		 *     		 /   \
-		 * Ltree.root     temp
-		 */
-
-		x.setParent(temp.getParent());
-		x.setLeft(Ltree.getRoot());
-		x.getLeft().setParent(x);
-		x.setRight(temp);
-		x.getRight().setParent(x);
-		if (x.getParent()!=null) {
-			x.getParent().setLeft(x);}
-		this.root = Rtree.getRoot();
-		x.calcRank();
-		this.rebalance(x);
-		x.updatePath();
-		
-		
-	}else if(heightdiff < 0){
-		//Ltree is taller than Rtree
-		IAVLNode temp = null;
-		temp = Ltree.root;
-
-		while (temp.getHeight()>Rtree.getRoot().getHeight()) {
-//			if (temp.getRight().isRealNode()) {
-				temp = temp.getRight();
-//			}
-		}
-		/* set x to be:
-		 * temp.parent
-		 *	     \
-		 *        x
-		 *      /   \
-		 *  temp      Rtree.root
-		 */
-		x.setParent(temp.getParent());
-		x.setRight(Rtree.getRoot());
-		x.setLeft(temp);
-		x.getRight().setParent(x);
-		x.getLeft().setParent(x);
-		if (x.getParent()!=null) {
-			x.getParent().setRight(x);}
-		this.root = Ltree.getRoot();
-		x.calcRank();
-		this.rebalance(x);
-		x.updatePath();
-		
-	}
-	this.max = Rtree.max;
-	this.min = Ltree.min;
-	return valtoreturn;
-}
-		
-
-
-	public IAVLNode rotateRight(IAVLNode node) {
-
-		IAVLNode leftNode = node.getLeft();
-		IAVLNode parentNode = node.getParent();
-
-		if (parentNode == null) { // node is root
-			this.root = (AVLNode) leftNode;
-
-		} else if (parentNode.getKey() > node.getKey()) { // node is left child
-			parentNode.setLeft(leftNode); // updating parentNode's new child
-
-		} else { // node is right child
-			parentNode.setRight(leftNode);
-		}
-
-		leftNode.setParent(parentNode); // updating leftNode's new parent
-
-		// rotate
-		node.setLeft(leftNode.getRight());
-		leftNode.getRight().setParent(node);
-		leftNode.setRight(node);
-		node.setParent(leftNode);
-
-		// sizes and heights update
-		node.update();
-		leftNode.update();
-
-		return leftNode;
-	}
-
-	public IAVLNode rotateLeft(IAVLNode node) {
-		IAVLNode rightNode = node.getRight();
-		IAVLNode parentNode = node.getParent();
-
-		if (parentNode == null) { // node is root
-			this.root = (AVLNode) rightNode;
-
-		} else if (parentNode.getKey() > node.getKey()) { // node is left child
-			parentNode.setLeft(rightNode); // updating parentNode's new child
-
-		} else { // node is right child
-			parentNode.setRight(rightNode);
-		}
-
-		rightNode.setParent(parentNode); // updating rightNode's new parent
-
-		// rotate
-		node.setRight(rightNode.getLeft());
-		rightNode.getLeft().setParent(node);
-		rightNode.setLeft(node);
-		node.setParent(rightNode);
-
-		// sizes and heights update
-		node.update();
-		rightNode.update();
-
-		return rightNode;
-	}
-
-	public IAVLNode findPosition(IAVLNode currNode, int k) {
-		IAVLNode tmp = null; // always a step before the currNode
-
-		while (currNode.isRealNode()) {
-			tmp = currNode;
-			if (k < currNode.getKey()) {
-				currNode = currNode.getLeft();
-			} else if (k > currNode.getKey()) {
-				currNode = currNode.getRight();
-			} else { // k == currNode.key
-				return currNode; // return an inner node
-			}
-		}
-		return tmp; // return a leaf or null if tree is empty
-	}
-
-	/**
-	 * public interface IAVLNode ! Do not delete or modify this - otherwise all
-	 * tests will fail !
-	 */
-	public interface IAVLNode {
-		public int getKey(); // returns node's key (for virtual node return -1)
-		public String getValue(); // returns node's value [info] (for virtual node return null)
-		public void setLeft(IAVLNode node); // sets left child
-		public IAVLNode getLeft(); // returns left child (if there is no left child return null)
-		public void setRight(IAVLNode node); // sets right child
-		public IAVLNode getRight(); // returns right child (if there is no right child return null)
-		public void setParent(IAVLNode node); // sets parent
-		public IAVLNode getParent(); // returns the parent (if there is no parent return null)
-		public boolean isRealNode(); // Returns True if this is a non-virtual AVL node
-		public void setHeight(int height); // sets the height of the node
-		public int getHeight(); // Returns the height of the node (-1 for virtual nodes)
-		public int getSize(); // returns the size of the node's subtree including the node itself
-		public void promote(); // promote rank
-		public void demote(); // demote rank
-		public int getRank(); // returns node's rank
-		public int rankDiffRight(); // returns rank difference between the node and it's right child
-		public int rankDiffLeft(); // returns rank difference between the node and it's left child
-		public void update(); // update node's height and size
-		public void updatePath(); // update the height and size of the path from the the giving node to the root
-		public void setSize(int i); //sets the node's new size
-		public void calcRank(); //calc node's rank according to it's height
-	}
-
-	/**
-	 * public class AVLNode
-	 *
-	 * If you wish to implement classes other than AVLTree (for example AVLNode), do
-	 * it in this file, not in another file. This class can and must be modified.
-	 * (It must implement IAVLNode)
-	 */
-	public class AVLNode implements IAVLNode {
-		private int key;
-		private String val;
-		private AVLNode left = null;
-		private AVLNode right = null;
-		private AVLNode parent = null;
-		private int height;
-		private int size;
-		private int rank;
-
-		public AVLNode(int Key, String Val) {
-			this.key = Key;
-			this.val = Val;
-			this.left = new AVLNode();
-			this.right = new AVLNode();
-			this.height = 0;
-			this.size = 1;
-			this.rank = 0;
-		}
-
-		public AVLNode() {
-			this.key = -1;
-			this.val = null;
-			this.left = null;
-			this.right = null;
-			this.height = -1;
-			this.size = 0;
-			this.rank = -1;
-		}
-
-		public int getKey() {
-			return this.key; // returns key
-		}
-
-		public String getValue() {
-			return this.val; // returns value
-		}
-
-		public void setLeft(IAVLNode node) {
-			this.left = (AVLNode) node; // to be replaced by student code
-		}
-
-		public IAVLNode getLeft() {
-			if (!this.isRealNode()) {
-				return null;
-			}
-			return this.left; // returns the left child of the node if it has one, or null otherwise
-		}
-
-		public void setRight(IAVLNode node) {
-			this.right = (AVLNode) node; // to be replaced by student code
-		}
-
-		public IAVLNode getRight() {
-			if (!this.isRealNode()) {
-				return null;
-			}
-			return this.right; // returns the right child of the node if it has one, or null otherwise
-		}
-
-		public void setParent(IAVLNode node) {
-			this.parent = (AVLNode) node; // sets the given node as the parent of the current node
-		}
-
-		public IAVLNode getParent() {
-			return this.parent; // to be replaced by student code
-		}
-
-		// Returns True if this is a non-virtual AVL node
-		public boolean isRealNode() {
-			return ((this.getKey() != -1) ? true : false); // returns true if the key is positive else returns false
-		}
-
-		public void setHeight(int height) {
-			this.height = height; // to be replaced by student code
-		}
-
-		public int getHeight() {
-			return this.height; // to be replaced by student code
-		}
-		public void calcRank() {
-			this.rank = 1 + Math.max(this.left.height, this.right.height);
-		}
-
-		public int getSize() {
-			return this.size;
-		}
-		
-		public void setSize(int i) {
-			this.size=(i);
-		}
-
-		public void promote() {
-			this.rank++;
-		}
-
-		public void demote() {
-			this.rank--;
-		}
-
-		public int getRank() {
-			return this.rank;
-		}
-
-		public int rankDiffRight() {
-			if (this.isRealNode() == false) {
-				return 0;
-			}
-			return (this.rank - this.right.rank);
-		}
-
-		public int rankDiffLeft() {
-			if (this.isRealNode() == false) {
-				return 0;
-			}
-			return this.rank - this.left.rank;
-		}
-
-		public void update() {
-			this.size = 1; // the node itself
-
-			if (this.right.isRealNode()) { // adding right subtree size
-				this.size += this.right.size;
-			}
-			if (this.left.isRealNode()) { // adding left subtree size
-				this.size += this.left.size;
-			}
-			this.height = 1 + Math.max(this.left.height, this.right.height);
-		}
-
-		public void updatePath() {
-			IAVLNode curr = this;
-			while (curr != null) {
-				curr.update();
-				curr = curr.getParent();
-			}
-		}
-
-	}
-
-}
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.OptionalInt;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+
+
+/**
+ *
+ * AVLTree
+ *
+ * An implementation of a AVL Tree with distinct integer keys and info
+ *
+ * A multiset tree (see AVLTree(boolean)) keeps a count of copies per key
+ * instead, for percentile queries over samples with repeated values.
+ *
+ * For other key and value types see GenericAVLTree, IntObjAVLTree and
+ * LongObjAVLTree.
+ *
+ */
+
+public class AVLTree {
+
+	private IAVLNode root = null;
+	private IAVLNode min;
+	private IAVLNode max;
+	private IAVLNode finger = null; // the last node reached by insert or a finger method
+	private final IAVLNode virtualLeaf = new AVLNode(); // shared by all nodes of this tree
+	private final boolean multiset;
+
+	public AVLTree() {
+		this(false);
+	}
+
+	/**
+	 * public AVLTree(boolean multiset)
+	 *
+	 * creates an empty tree. in a multiset tree, inserting an existing key adds a
+	 * copy of it (the first info is kept) and deleting a key removes one copy;
+	 * percentile and quantiles count every copy, while size, rank and select
+	 * still count distinct keys.
+	 */
+	public AVLTree(boolean multiset) {
+		this.multiset = multiset;
+	}
+
+	public int MAXKEY() {
+		return this.max.getKey();
+	}
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the tree is empty
+	 *
+	 */
+	public boolean empty() {
+		if (this.root == null){
+			return true;
+		}
+		if (!this.root.isRealNode()) {
+			this.root=null;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * public String search(int k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree otherwise,
+	 * returns null
+	 */
+	public String search(int k) {
+		IAVLNode node = SearchNode(k);
+		if (node!=null && node.isRealNode()) {
+			return node.getValue();
+		}
+		return null;
+	}
+
+	// probes that searchAll walks down the tree side by side
+	private static final int SEARCH_GROUP = 8;
+
+	/**
+	 * public void searchAll(int[] keys, String[] out)
+	 *
+	 * sets out[j] to search(keys[j]) for every j. the probes are sorted first,
+	 * so neighbouring probes follow the same path from the root and find its
+	 * nodes in cache, and then walked down in groups of SEARCH_GROUP, one level
+	 * of every probe in the group per round: the group's loads don't depend on
+	 * each other, so the CPU overlaps their cache misses instead of waiting on
+	 * each in turn. out must be at least as long as keys.
+	 */
+	public void searchAll(int[] keys, String[] out) {
+		int m = keys.length;
+		if (out.length < m) {
+			throw new IllegalArgumentException("out is shorter than keys");
+		}
+		if (this.root == null || !this.root.isRealNode()) {
+			Arrays.fill(out, 0, m, null);
+			return;
+		}
+		long[] probes = new long[m]; // key in the high half, index in the low half
+		for (int j = 0; j < m; j++) {
+			probes[j] = ((long) keys[j] << 32) | j;
+		}
+		Arrays.sort(probes);
+
+		IAVLNode[] lanes = new IAVLNode[SEARCH_GROUP];
+		for (int base = 0; base < m; base += SEARCH_GROUP) {
+			int g = Math.min(SEARCH_GROUP, m - base);
+			Arrays.fill(lanes, 0, g, this.root);
+			for (int live = g; live > 0;) {
+				live = 0;
+				for (int j = 0; j < g; j++) {
+					IAVLNode node = lanes[j];
+					if (node == null) {
+						continue;
+					}
+					long probe = probes[base + j];
+					int k = (int) (probe >> 32);
+					if (!node.isRealNode() || node.getKey() == k) {
+						out[(int) probe] = node.isRealNode() ? node.getValue() : null;
+						lanes[j] = null;
+					} else {
+						lanes[j] = (k < node.getKey()) ? node.getLeft() : node.getRight();
+						live++;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 *
+	 * inserts an item with key k and info i to the AVL tree. the tree must remain
+	 * valid (keep its invariants). returns the number of rebalancing operations, or
+	 * 0 if no rebalancing operations were necessary. promotion/rotation - counted
+	 * as one rebalnce operation, double-rotation is counted as 2. returns -1 if an
+	 * item with key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		return this.insertFrom(null, k, i);
+	}
+
+	// inserts (k, i), searching from the finger start if it isn't null. the
+	// inserted (or existing) node becomes the tree's finger
+	private int insertFrom(IAVLNode start, int k, String i) {
+
+		IAVLNode newNode = new AVLNode(k, i);
+		if (this.empty()||!this.root.isRealNode()) { // insert root
+			this.root = (AVLNode) newNode;
+			this.max = (AVLNode) newNode;
+			this.min = (AVLNode) newNode;
+
+		} else { // tree is not empty
+			
+			if(this.max == null || this.min == null) { //will add logn to complexity but wont change it...
+				this.updatemax(); 
+				this.updatemin();
+			}
+			
+			IAVLNode position;
+			if (k > this.max.getKey()) { // a new max hangs right of the old one, no descent
+				position = this.max;
+			} else if (k < this.min.getKey()) {
+				position = this.min;
+			} else {
+				position = (start == null) ? this.findPosition(this.root, k) : this.fingerPosition(start, k);
+			}
+			this.finger = position;
+			if (position.getKey() == k) { // key already exists
+				if (this.multiset) {
+					this.addCopies(position, 1);
+					return 0;
+				}
+				return -1;
+
+			} else if (position.getKey() > k) { // insert as a left child
+				position.setLeft(newNode);
+				if (newNode.getKey() <= this.min.getKey()) {
+					this.min = newNode;
+				}
+
+			} else { // insert as a right child
+				position.setRight(newNode);
+				if (newNode.getKey() >= this.max.getKey()) {
+					this.max = newNode;
+				}
+			}
+			newNode.setParent(position);
+		}
+		this.finger = newNode;
+		return this.rebalanceInsert(newNode);
+
+	}
+
+	/**
+	 * private int rebalanceInsert(IAVLNode node)
+	 *
+	 * rebalances the tree after node was added as a new leaf, in one pass up the
+	 * path: ranks and heights are fixed only while the subtree's rank keeps
+	 * growing, and above that point only the sizes are incremented. returns the
+	 * number of rebalancing operations, counted as in rebalance.
+	 */
+	private int rebalanceInsert(IAVLNode node) {
+		int cnt = 0;
+		IAVLNode parent = node.getParent();
+
+		while (parent != null) {
+			if (parent.rankDiffLeft() == 0) { // problem with left subtree
+				if (parent.rankDiffRight() == 1) { // case 1: node-01, not terminal
+					parent.promote();
+					parent.update();
+					cnt++;
+					parent = parent.getParent();
+					continue;
+				}
+				IAVLNode child = parent.getLeft();
+				if (child.rankDiffLeft() == 1) { // case 2: node-02 with child-12, terminal
+					parent.demote();
+					node = this.rotateRight(parent);
+					cnt += 2;
+				} else { // case 3: node-02 with child-21, terminal
+					parent.demote();
+					child.demote();
+					node = this.rotateLeft(child);
+					node.promote();
+					node = this.rotateRight(parent);
+					cnt += 5;
+				}
+				parent = node.getParent();
+
+			} else if (parent.rankDiffRight() == 0) { // problem with right subtree
+				if (parent.rankDiffLeft() == 1) { // case 1: node-10, not terminal
+					parent.promote();
+					parent.update();
+					cnt++;
+					parent = parent.getParent();
+					continue;
+				}
+				IAVLNode child = parent.getRight();
+				if (child.rankDiffRight() == 1) { // case 2: node-20 with child-21, terminal
+					parent.demote();
+					node = this.rotateLeft(parent);
+					cnt += 2;
+				} else { // case 3: node-20 with child-12, terminal
+					parent.demote();
+					child.demote();
+					node = this.rotateRight(child);
+					node.promote();
+					node = this.rotateLeft(parent);
+					cnt += 5;
+				}
+				parent = node.getParent();
+			}
+			break; // the subtree's rank didn't change
+		}
+
+		// the rest of the path only gained one node
+		while (parent != null) {
+			parent.setSize(parent.getSize() + 1);
+			((AVLNode) parent).weight++;
+			parent = parent.getParent();
+		}
+		return cnt;
+	}
+
+	public int rebalance(IAVLNode node) {
+		int cnt = 0;
+		while (node != null) {
+			
+			AVLNode newNode = (AVLNode) node;
+
+			if (newNode.rankDiffLeft() == 0) { // problem with left subtree
+				if (newNode.rankDiffRight() == 1) { // case 1: node-01, not terminal
+					newNode.promote(); // sol: promote
+					cnt++;
+				} else {
+					if (newNode.getLeft().rankDiffLeft() == 1 && // case 2: node-02 with child-12, terminal
+							newNode.getLeft().rankDiffRight() == 2) {
+
+						newNode.demote(); // sol: demote + right rotate
+						node = this.rotateRight(newNode);
+						cnt += 2;
+
+					} else if(newNode.getLeft().rankDiffRight() == 1 && 
+							newNode.getLeft().rankDiffLeft() == 2){ // case3: node-02 with child-21, terminal
+						newNode.demote(); // sol: demote + left rotation + right rotation
+						newNode.getLeft().demote();
+						node = this.rotateLeft(newNode.getLeft());
+						node.promote();
+						node = this.rotateRight(newNode);
+						cnt += 5;
+					}
+					else { 	//this case is used only in join!!!!
+						newNode.getLeft().promote();
+						node = this.rotateRight(newNode);
+					}
+				}
+			}
+
+			else if (newNode.rankDiffRight() == 0) { // problem with right subtree
+				if (newNode.rankDiffLeft() == 1) { // case 1: node-01, not terminal
+					newNode.promote(); // sol: promote
+					cnt++;
+				} else {
+					if (newNode.getRight().rankDiffLeft() == 2 && // case2: node-20 with child-12, terminal
+							newNode.getRight().rankDiffRight() == 1) {
+
+						newNode.demote(); // sol: demote + left rotate
+						node = this.rotateLeft(newNode);
+						cnt += 2;
+
+					} else if(newNode.getRight().rankDiffRight() == 2 &&
+							newNode.getRight().rankDiffLeft() == 1) { // case3: node-02 with child-21, terminal
+						newNode.demote(); // sol: demote + right rotation + left rotation
+						newNode.getRight().demote();
+						node = this.rotateRight(newNode.getRight());
+						node.promote();
+						node = this.rotateLeft(newNode);
+						cnt += 5;
+					}
+					else { 	//this case is used only in join!!!!
+						newNode.getRight().promote();
+						node = this.rotateLeft(newNode);
+					}
+
+				}
+
+			}
+			node = node.getParent();
+		}
+		return cnt;
+	}
+
+
+	/**
+	 * public int delete(int k)
+	 *
+	 * deletes an item with key k from the binary tree, if it is there; the tree
+	 * must remain valid (keep its invariants). returns the number of rebalancing
+	 * operations, or 0 if no rebalancing operations were needed. demotion/rotation
+	 * - counted as one rebalnce operation, double-rotation is counted as 2. returns
+	 * -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		IAVLNode node = this.SearchNode(k);
+		if (node == null) {
+			// there is no key with value k in the tree
+			return -1;
+		}
+		return this.deleteNode(node);
+	}
+
+	// deletes (one copy of) node's key
+	private int deleteNode(IAVLNode node) {
+		if (node == this.finger) {
+			this.finger = null;
+		}
+		if (((AVLNode) node).count > 1) { // a multiset key with copies left
+			this.addCopies(node, -1);
+			return 0;
+		}
+		// the neighbours of a deleted min/max take its place, no need to walk the tree
+		if (node == this.min) {
+			this.min = this.successor(node);
+		}
+		if (node == this.max) {
+			this.max = this.predecessor(node);
+		}
+
+		IAVLNode parent; // the lowest node whose subtree lost a node
+		if (node.getLeft().isRealNode() && node.getRight().isRealNode()) {
+			// node has two sons: its successor takes its place in the tree
+			IAVLNode successor = this.successor(node);
+			int extraCopies = ((AVLNode) successor).count - 1;
+			for (IAVLNode n = successor.getParent(); n != node && extraCopies > 0; n = n.getParent()) {
+				// the walk up below takes one copy off these, the successor moves all of its
+				((AVLNode) n).weight -= extraCopies;
+			}
+			if (successor.getParent() == node) {
+				parent = successor;
+			} else {
+				parent = successor.getParent();
+				this.replaceChild(successor, successor.getRight());
+				successor.setRight(node.getRight());
+				successor.getRight().setParent(successor);
+			}
+			successor.setLeft(node.getLeft());
+			successor.getLeft().setParent(successor);
+			this.replaceChild(node, successor);
+			((AVLNode) successor).rank = node.getRank();
+			successor.setHeight(node.getHeight());
+			successor.setSize(node.getSize());
+			((AVLNode) successor).weight = ((AVLNode) node).weight;
+		} else {
+			// node has one or zero sons
+			parent = node.getParent();
+			IAVLNode child = node.getLeft().isRealNode() ? node.getLeft() : node.getRight();
+			this.replaceChild(node, child);
+		}
+		node.setParent(null);
+		node.setLeft(virtualLeaf);
+		node.setRight(virtualLeaf);
+		if (!this.root.isRealNode()) {
+			this.root = null;
+		}
+
+		return this.rebalanceDelete(parent);
+	}
+
+	/**
+	 * private int rebalanceDelete(IAVLNode node)
+	 *
+	 * rebalances the tree bottom-up from node, after one of node's subtrees lost
+	 * one rank. ranks are fixed only while the subtree's rank keeps shrinking,
+	 * above that only the sizes are decremented. returns the number of rebalancing
+	 * operations: demotion - 1, rotation - 3, double rotation - 6.
+	 */
+	private int rebalanceDelete(IAVLNode node) {
+		int cnt = 0;
+
+		while (node != null) {
+			int rdl = node.rankDiffLeft();
+			int rdr = node.rankDiffRight();
+
+			if (rdl == 2 && rdr == 2) { // demote and go on
+				node.demote();
+				node.update();
+				cnt++;
+				node = node.getParent();
+				continue;
+			}
+			if (rdl == 3 || rdr == 3) {
+				boolean leftShort = (rdl == 3);
+				IAVLNode y = leftShort ? node.getRight() : node.getLeft();
+				int yNear = leftShort ? y.rankDiffLeft() : y.rankDiffRight(); // y's inner side
+				int yFar = leftShort ? y.rankDiffRight() : y.rankDiffLeft(); // y's outer side
+				IAVLNode top;
+
+				if (yNear == 1 && yFar == 1) { // single rotation, terminal
+					top = leftShort ? this.rotateLeft(node) : this.rotateRight(node);
+					node.demote();
+					y.promote();
+					cnt += 3;
+					node = top.getParent();
+					break;
+				}
+				if (yFar == 1) { // single rotation, subtree got shorter
+					top = leftShort ? this.rotateLeft(node) : this.rotateRight(node);
+					node.demote();
+					node.demote();
+					cnt += 3;
+				} else { // double rotation, subtree got shorter
+					IAVLNode a = leftShort ? y.getLeft() : y.getRight();
+					if (leftShort) {
+						this.rotateRight(y);
+						top = this.rotateLeft(node);
+					} else {
+						this.rotateLeft(y);
+						top = this.rotateRight(node);
+					}
+					node.demote();
+					node.demote();
+					y.demote();
+					a.promote();
+					cnt += 6;
+				}
+				node = top.getParent();
+				continue;
+			}
+			// the subtree's rank didn't change
+			node.update();
+			node = node.getParent();
+			break;
+		}
+
+		// the rest of the path only lost one node
+		while (node != null) {
+			node.setSize(node.getSize() - 1);
+			((AVLNode) node).weight--;
+			node = node.getParent();
+		}
+		return cnt;
+	}
+
+	// puts replacement in node's place under node's parent (or as the root)
+	private void replaceChild(IAVLNode node, IAVLNode replacement) {
+		IAVLNode parent = node.getParent();
+		if (parent == null) {
+			this.root = replacement;
+		} else if (parent.getLeft() == node) {
+			parent.setLeft(replacement);
+		} else {
+			parent.setRight(replacement);
+		}
+		replacement.setParent(parent);
+	}
+
+	/**
+	 * private IAVLNode successor(IAVLNode node)
+	 *
+	 * returns the node with the next key after node's, or null if node is the
+	 * max. uses parent pointers, so it costs O(1) amortized over a walk.
+	 */
+	private IAVLNode successor(IAVLNode node) {
+		if (node.getRight().isRealNode()) {
+			node = node.getRight();
+			while (node.getLeft().isRealNode()) {
+				node = node.getLeft();
+			}
+			return node;
+		}
+		while (node.getParent() != null && node.getParent().getRight() == node) {
+			node = node.getParent();
+		}
+		return node.getParent();
+	}
+
+	/**
+	 * private IAVLNode predecessor(IAVLNode node)
+	 *
+	 * returns the node with the previous key before node's, or null if node is
+	 * the min.
+	 */
+	private IAVLNode predecessor(IAVLNode node) {
+		if (node.getLeft().isRealNode()) {
+			node = node.getLeft();
+			while (node.getRight().isRealNode()) {
+				node = node.getRight();
+			}
+			return node;
+		}
+		while (node.getParent() != null && node.getParent().getLeft() == node) {
+			node = node.getParent();
+		}
+		return node.getParent();
+	}
+
+
+	/**
+	 * SearchNode(int k):
+	 * @param int k
+	 * @return node with key == k or null if there is no such node in the tree
+	 */
+	private IAVLNode SearchNode(int k) {
+		if (this.empty()){
+			return null;
+		}
+		IAVLNode node = this.getRoot();
+		while (node.isRealNode()) {
+			if (node.getKey() == k) {
+				return node;
+			}
+			if (node.getKey() > k) {
+				node = node.getLeft();
+			} else {
+				node = node.getRight();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * public String min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String min() {
+		if (this.empty()) { // tree is empty
+			return null;
+		}
+		return this.min.getValue();
+	}
+
+	/**
+	 * public String max()
+	 *
+	 * Returns the info of the item with the largest key in the tree, or null if the
+	 * tree is empty
+	 */
+	public String max() {
+		if (this.empty()) { // tree is empty
+			return null;
+		}
+		return this.max.getValue(); // this is a saved field in our data structure :)
+	}
+	/**
+	 * public void updatemax()
+	 * 
+	 * calculates the max key out of our tree and sets the corresponding field if
+	 * the tree is empty, it sets it to null
+	 * @return 
+	 */
+	public void updatemax() {
+		if (this.empty()) {
+			this.max = virtualLeaf;
+			return;
+
+		}
+		IAVLNode node = this.getRoot();
+		IAVLNode max = null;
+		while (node.isRealNode()) {
+			max = node;
+			node = node.getRight();
+		}
+		this.max = max;
+	}
+
+	/**
+	 * public void updatemin()
+	 * 
+	 * calculates the minimal key out of our tree and sets the corresponding field
+	 * if the tree is empty, it sets it to null
+	 */
+
+	public void updatemin() {
+		if (this.empty()) {
+			this.min = virtualLeaf;
+			return;
+		}
+		IAVLNode node = this.getRoot();
+		IAVLNode min = null;
+		while (node.isRealNode()) {
+			min = node;
+			node = node.getLeft();
+		}
+		this.min = min;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree, or an empty array
+	 * if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		int[] keysArray = new int[this.size()];
+
+		int i = 0;
+		for (IAVLNode node = this.firstNode(); node != null; node = this.successor(node)) {
+			keysArray[i] = node.getKey();
+			i++;
+		}
+		return keysArray;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		String[] infoArray = new String[this.size()];
+
+		int i = 0;
+		for (IAVLNode node = this.firstNode(); node != null; node = this.successor(node)) {
+			infoArray[i] = node.getValue();
+			i++;
+		}
+		return infoArray;
+	}
+
+	// returns the node with the smallest key, or null if the tree is empty
+	private IAVLNode firstNode() {
+		if (this.empty()) {
+			return null;
+		}
+		IAVLNode node = this.root;
+		while (node.getLeft().isRealNode()) {
+			node = node.getLeft();
+		}
+		return node;
+	}
+
+	// returns the node with the largest key, or null if the tree is empty
+	private IAVLNode lastNode() {
+		if (this.empty()) {
+			return null;
+		}
+		IAVLNode node = this.root;
+		while (node.getRight().isRealNode()) {
+			node = node.getRight();
+		}
+		return node;
+	}
+
+	// returns the node with the smallest key >= k, or null if there is none
+	private IAVLNode ceilingNode(int k) {
+		return this.boundNode(k, true, true);
+	}
+
+	// returns the node with the nearest key above k (up) or below it, or k's own
+	// node if inclusive; null if there is none. one descent: the last node passed
+	// on the wanted side of k is the answer unless k itself turns up
+	private IAVLNode boundNode(int k, boolean up, boolean inclusive) {
+		IAVLNode candidate = null;
+		IAVLNode node = this.empty() ? null : this.root;
+		while (node != null && node.isRealNode()) {
+			int key = node.getKey();
+			if (key == k && inclusive) {
+				return node;
+			}
+			if (up ? key > k : key >= k) {
+				if (up) {
+					candidate = node;
+				}
+				node = node.getLeft();
+			} else {
+				if (!up) {
+					candidate = node;
+				}
+				node = node.getRight();
+			}
+		}
+		return candidate;
+	}
+
+	/**
+	 * public IAVLNode floorEntry(int k)
+	 *
+	 * Returns the node with the largest key <= k, or null if there is none. One
+	 * descent, O(log n).
+	 */
+	public IAVLNode floorEntry(int k) {
+		return this.boundNode(k, false, true);
+	}
+
+	/**
+	 * public IAVLNode ceilingEntry(int k)
+	 *
+	 * Returns the node with the smallest key >= k, or null if there is none.
+	 */
+	public IAVLNode ceilingEntry(int k) {
+		return this.boundNode(k, true, true);
+	}
+
+	/**
+	 * public IAVLNode lowerEntry(int k)
+	 *
+	 * Returns the node with the largest key < k, or null if there is none.
+	 */
+	public IAVLNode lowerEntry(int k) {
+		return this.boundNode(k, false, false);
+	}
+
+	/**
+	 * public IAVLNode higherEntry(int k)
+	 *
+	 * Returns the node with the smallest key > k, or null if there is none.
+	 */
+	public IAVLNode higherEntry(int k) {
+		return this.boundNode(k, true, false);
+	}
+
+	/**
+	 * public OptionalInt floorKey(int k)
+	 *
+	 * Returns the largest key <= k, or an empty OptionalInt if there is none. One
+	 * descent; when the caller unwraps the result right away the OptionalInt
+	 * doesn't escape, and the JIT drops its allocation.
+	 */
+	public OptionalInt floorKey(int k) {
+		return keyOf(this.floorEntry(k));
+	}
+
+	/**
+	 * public OptionalInt ceilingKey(int k)
+	 *
+	 * Returns the smallest key >= k, or an empty OptionalInt if there is none.
+	 */
+	public OptionalInt ceilingKey(int k) {
+		return keyOf(this.ceilingEntry(k));
+	}
+
+	/**
+	 * public OptionalInt lowerKey(int k)
+	 *
+	 * Returns the largest key < k, or an empty OptionalInt if there is none.
+	 */
+	public OptionalInt lowerKey(int k) {
+		return keyOf(this.lowerEntry(k));
+	}
+
+	/**
+	 * public OptionalInt higherKey(int k)
+	 *
+	 * Returns the smallest key > k, or an empty OptionalInt if there is none.
+	 */
+	public OptionalInt higherKey(int k) {
+		return keyOf(this.higherEntry(k));
+	}
+
+	private static OptionalInt keyOf(IAVLNode node) {
+		return (node == null) ? OptionalInt.empty() : OptionalInt.of(node.getKey());
+	}
+
+	/**
+	 * public int rank(int k)
+	 *
+	 * Returns the number of keys in the tree that are smaller than k, using the
+	 * subtree sizes (O(log n)). If k is in the tree, keysToArray()[rank(k)] == k.
+	 */
+	public int rank(int k) {
+		return this.countLess(k, false);
+	}
+
+	// counts the keys < k (or <= k if inclusive) in one descent
+	private int countLess(int k, boolean inclusive) {
+		int cnt = 0;
+		IAVLNode node = this.empty() ? null : this.root;
+		while (node != null && node.isRealNode()) {
+			if (node.getKey() < k || (inclusive && node.getKey() == k)) {
+				cnt += node.getLeft().getSize() + 1;
+				node = node.getRight();
+			} else {
+				node = node.getLeft();
+			}
+		}
+		return cnt;
+	}
+
+	/**
+	 * public IAVLNode select(int i)
+	 *
+	 * Returns the node holding the i-th smallest key (counting from 0), or null if
+	 * i is not in [0, size()). O(log n).
+	 */
+	public IAVLNode select(int i) {
+		if (i < 0 || i >= this.size()) {
+			return null;
+		}
+		IAVLNode node = this.root;
+		while (true) {
+			int leftSize = node.getLeft().getSize();
+			if (i < leftSize) {
+				node = node.getLeft();
+			} else if (i == leftSize) {
+				return node;
+			} else {
+				i -= leftSize + 1;
+				node = node.getRight();
+			}
+		}
+	}
+
+	/**
+	 * public int percentile(double q)
+	 *
+	 * Returns the nearest-rank q-quantile: the smallest key such that at least a
+	 * fraction q of the items (of all copies, in a multiset) have a key <= it.
+	 * One descent on the subtree weights, O(log n). precondition: 0 <= q <= 1,
+	 * the tree is not empty.
+	 */
+	public int percentile(double q) {
+		return this.quantiles(q)[0];
+	}
+
+	/**
+	 * public int[] quantiles(double... qs)
+	 *
+	 * Returns percentile(qs[i]) for every i. The queries are sorted and answered
+	 * in one batched descent that visits every node at most once, so shared path
+	 * prefixes (e.g. of p99 and p999) are walked once. O(m log n) for m queries.
+	 */
+	public int[] quantiles(double... qs) {
+		if (this.empty()) {
+			throw new NoSuchElementException("the tree is empty");
+		}
+		long total = ((AVLNode) this.root).weight;
+		long[] targets = new long[qs.length]; // rank << 32 | index
+		for (int i = 0; i < qs.length; i++) {
+			if (!(qs[i] >= 0 && qs[i] <= 1)) {
+				throw new IllegalArgumentException("quantile out of [0, 1]: " + qs[i]);
+			}
+			long rank = Math.max(1, (long) Math.ceil(qs[i] * total));
+			targets[i] = (rank << 32) | i;
+		}
+		Arrays.sort(targets);
+		int[] result = new int[qs.length];
+		this.selectWeights(this.root, targets, 0, targets.length, 0, result);
+		return result;
+	}
+
+	// answers targets[lo..hi) (1-based ranks among all copies, sorted), which all
+	// fall in node's subtree; offset copies come before the subtree
+	private void selectWeights(IAVLNode node, long[] targets, int lo, int hi, long offset, int[] result) {
+		while (lo < hi) {
+			AVLNode n = (AVLNode) node;
+			long leftEnd = offset + n.left.weight;
+			long nodeEnd = leftEnd + n.count;
+			int mid = lo;
+			while (mid < hi && (targets[mid] >>> 32) <= leftEnd) {
+				mid++;
+			}
+			if (mid > lo) {
+				this.selectWeights(n.left, targets, lo, mid, offset, result);
+			}
+			while (mid < hi && (targets[mid] >>> 32) <= nodeEnd) {
+				result[(int) targets[mid]] = n.key;
+				mid++;
+			}
+			lo = mid;
+			node = n.right;
+			offset = nodeEnd;
+		}
+	}
+
+	// adds d copies to node's key and to the weights up to the root
+	private void addCopies(IAVLNode node, int d) {
+		((AVLNode) node).count += d;
+		for (IAVLNode n = node; n != null; n = n.getParent()) {
+			((AVLNode) n).weight += d;
+		}
+	}
+
+	/**
+	 * public int countRange(int lo, int hi)
+	 *
+	 * Returns the number of keys k in the tree with lo <= k <= hi. O(log n).
+	 */
+	public int countRange(int lo, int hi) {
+		if (lo > hi) {
+			return 0;
+		}
+		return this.countLess(hi, true) - this.countLess(lo, false);
+	}
+
+	/**
+	 * public void forEachInRange(int lo, int hi, ItemConsumer consumer)
+	 *
+	 * Calls consumer with the key and info of every item with lo <= key <= hi, in
+	 * key order. O(log n + m) for m items in the range.
+	 */
+	public void forEachInRange(int lo, int hi, ItemConsumer consumer) {
+		if (lo > hi) {
+			return;
+		}
+		for (IAVLNode node = this.ceilingNode(lo); node != null && node.getKey() <= hi; node = this.successor(node)) {
+			consumer.accept(node.getKey(), node.getValue());
+		}
+	}
+
+	/**
+	 * public interface ItemConsumer
+	 *
+	 * receives the items of a range scan; keys stay primitive.
+	 */
+	public interface ItemConsumer {
+		public void accept(int key, String info);
+	}
+
+	/**
+	 * public Cursor cursor()
+	 *
+	 * Returns a new cursor over the tree, positioned before the first item. Moving
+	 * a cursor allocates nothing. A cursor stays valid across inserts, but not
+	 * across a delete of the item it is on, a split or a join.
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * public int append(int k, String i)
+	 *
+	 * inserts an item with a key larger than every key in the tree (or equal to
+	 * the max, in a multiset), e.g. the next timestamp of a series. Like insert
+	 * with a new max, the node hangs right of the old max with no descent from
+	 * the root. returns the number of rebalancing operations. throws
+	 * IllegalArgumentException if k is smaller than the max.
+	 */
+	public int append(int k, String i) {
+		if (!this.empty()) {
+			int last = this.lastNodeCached().getKey();
+			if (k < last || (k == last && !this.multiset)) {
+				throw new IllegalArgumentException("key " + k + " does not follow the max key " + last);
+			}
+		}
+		return this.insert(k, i);
+	}
+
+	/**
+	 * public String fingerSearch(int k)
+	 *
+	 * like search, but starts from the tree's finger, the node last reached by
+	 * insert or a finger method, and makes the found node (or the node k would
+	 * hang from) the new finger. For keys that arrive near each other, e.g.
+	 * almost in order, the search costs O(log d) instead of O(log n), where d is
+	 * the distance in keys from the finger.
+	 */
+	public String fingerSearch(int k) {
+		if (this.empty()) {
+			return null;
+		}
+		IAVLNode node = this.fingerPosition(this.finger, k);
+		this.finger = node;
+		return (node.getKey() == k) ? node.getValue() : null;
+	}
+
+	/**
+	 * public String fingerSearch(Cursor finger, int k)
+	 *
+	 * like fingerSearch(k), but starts from the cursor's item (or the root if the
+	 * cursor isn't on one) and moves the cursor to k's item if it exists.
+	 */
+	public String fingerSearch(Cursor finger, int k) {
+		if (this.empty()) {
+			return null;
+		}
+		IAVLNode node = this.fingerPosition(finger.node, k);
+		if (node.getKey() != k) {
+			return null;
+		}
+		finger.node = node;
+		return node.getValue();
+	}
+
+	/**
+	 * public int fingerInsert(int k, String i)
+	 *
+	 * like insert, which also leaves the new node as the finger, but finds the
+	 * position by climbing from the finger as in fingerSearch. Only the search
+	 * gets cheaper: keeping the subtree sizes still walks up to the root.
+	 */
+	public int fingerInsert(int k, String i) {
+		return this.insertFrom(this.finger, k, i);
+	}
+
+	/**
+	 * public int fingerInsert(Cursor finger, int k, String i)
+	 *
+	 * like fingerInsert(k, i), but starts from the cursor's item and moves the
+	 * cursor to k's item.
+	 */
+	public int fingerInsert(Cursor finger, int k, String i) {
+		int result = this.insertFrom(finger.node, k, i);
+		finger.node = this.finger;
+		return result;
+	}
+
+	/**
+	 * public int fingerDelete(int k)
+	 *
+	 * like delete, but finds k by climbing from the finger. The finger moves to
+	 * the deleted item's successor (or predecessor, if it was the max).
+	 */
+	public int fingerDelete(int k) {
+		return this.fingerDeleteFrom(this.finger, k);
+	}
+
+	/**
+	 * public int fingerDelete(Cursor finger, int k)
+	 *
+	 * like fingerDelete(k), but starts from the cursor's item and moves the
+	 * cursor to the deleted item's successor (or predecessor).
+	 */
+	public int fingerDelete(Cursor finger, int k) {
+		int result = this.fingerDeleteFrom(finger.node, k);
+		if (result != -1) {
+			finger.node = this.finger;
+		}
+		return result;
+	}
+
+	private int fingerDeleteFrom(IAVLNode start, int k) {
+		if (this.empty()) {
+			return -1;
+		}
+		IAVLNode node = this.fingerPosition(start, k);
+		if (node.getKey() != k) {
+			this.finger = node;
+			return -1;
+		}
+		IAVLNode next = this.successor(node);
+		if (next == null) {
+			next = this.predecessor(node);
+		}
+		boolean removed = ((AVLNode) node).count == 1; // not just a multiset copy
+		int result = this.deleteNode(node);
+		this.finger = removed ? next : node;
+		return result;
+	}
+
+	/**
+	 * private IAVLNode fingerPosition(IAVLNode start, int k)
+	 *
+	 * returns the node with key k, or the node k would hang from, like
+	 * findPosition(root, k), but found from start (the root if start is null):
+	 * climbs while the parent's key is still on the far side of k, so the climb
+	 * stops at the lowest ancestor whose subtree spans k, then descends. From the
+	 * min or max the climb is O(log d) for a key d items away, and keys beyond
+	 * either end are placed in O(1).
+	 */
+	private IAVLNode fingerPosition(IAVLNode start, int k) {
+		if (start == null || !start.isRealNode()) {
+			return this.findPosition(this.root, k);
+		}
+		// past either end, k hangs from the min or max: no climb at all
+		IAVLNode first = this.firstNodeCached();
+		IAVLNode last = this.lastNodeCached();
+		if (k <= first.getKey()) {
+			return first;
+		}
+		if (k >= last.getKey()) {
+			return last;
+		}
+		IAVLNode node = start;
+		if (k == node.getKey()) {
+			return node;
+		}
+		if (k > node.getKey()) {
+			while (node.getParent() != null && node.getParent().getKey() < k) {
+				node = node.getParent();
+			}
+		} else {
+			while (node.getParent() != null && node.getParent().getKey() > k) {
+				node = node.getParent();
+			}
+		}
+		if (node.getParent() != null && node.getParent().getKey() == k) {
+			return node.getParent();
+		}
+		return this.findPosition(node, k);
+	}
+
+	/**
+	 * public Stream<IAVLNode> stream()
+	 *
+	 * Returns a sequential stream of the tree's nodes in key order. The nodes are
+	 * walked lazily through parent pointers; nothing is copied.
+	 */
+	public Stream<IAVLNode> stream() {
+		return StreamSupport.stream(new NodeSpliterator(this.firstNode(), this.size()), false);
+	}
+
+	/**
+	 * public static AVLTree fromSorted(int[] keys, String[] values)
+	 *
+	 * Builds a tree holding keys[i] with info values[i] (or null info if values is
+	 * null) in O(n), without comparisons against the tree or rotations: the middle
+	 * item of every range becomes the root of its subtree. keys must be strictly
+	 * increasing.
+	 */
+	public static AVLTree fromSorted(int[] keys, String[] values) {
+		if (values != null && values.length != keys.length) {
+			throw new IllegalArgumentException("keys and values differ in length");
+		}
+		for (int i = 1; i < keys.length; i++) {
+			if (keys[i - 1] >= keys[i]) {
+				throw new IllegalArgumentException("keys are not strictly increasing at index " + i);
+			}
+		}
+		return build(false, keys, values, null, keys.length);
+	}
+
+	// the O(n) build behind fromSorted, for the first n items. counts (copies per
+	// key, multiset only) may be null
+	private static AVLTree build(boolean multiset, int[] keys, String[] values, int[] counts, int n) {
+		AVLTree tree = new AVLTree(multiset);
+		if (n > 0) {
+			tree.root = tree.buildBalanced(keys, values, counts, 0, n - 1);
+			tree.root.setParent(null);
+			tree.updatemin();
+			tree.updatemax();
+		}
+		return tree;
+	}
+
+	/**
+	 * public FrozenAVLTree freeze()
+	 *
+	 * returns an immutable copy of the tree laid out for fast searches (see
+	 * FrozenAVLTree), in O(n). the tree itself is not changed; in multiset mode
+	 * every key is copied once.
+	 */
+	public FrozenAVLTree freeze() {
+		return new FrozenAVLTree(this.keysToArray(), this.infoToArray());
+	}
+
+	/**
+	 * public void writeTo(Path path)
+	 *
+	 * writes the tree to path in the layout MappedAVLTree reads: fixed-width node
+	 * records in key order, each with its children's record numbers, then the
+	 * values. the file can be searched with mapFrom without deserializing it. in
+	 * multiset mode every key is written once.
+	 */
+	public void writeTo(Path path) throws IOException {
+		int count = this.empty() ? 0 : this.root.getSize();
+		long valuesStart = MappedAVLTree.HEADER_BYTES + (long) count * MappedAVLTree.RECORD_BYTES;
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+			out.writeInt(MappedAVLTree.MAGIC);
+			out.writeInt(MappedAVLTree.VERSION);
+			out.writeInt(count);
+			out.writeInt(this.empty() ? -1 : this.root.getLeft().getSize());
+			out.writeLong(valuesStart);
+
+			// record i is the node of rank i, so a child's record number follows from
+			// the subtree sizes
+			long valueOffset = valuesStart;
+			int i = 0;
+			for (IAVLNode node = this.firstNode(); node != null; node = this.successor(node), i++) {
+				IAVLNode left = node.getLeft();
+				IAVLNode right = node.getRight();
+				out.writeInt(node.getKey());
+				out.writeInt(left.isRealNode() ? i - left.getSize() + left.getLeft().getSize() : -1);
+				out.writeInt(right.isRealNode() ? i + 1 + right.getLeft().getSize() : -1);
+				out.writeInt(node.getHeight());
+				out.writeInt(node.getSize());
+				String value = node.getValue();
+				if (value == null) {
+					out.writeLong(-1);
+				} else {
+					out.writeLong(valueOffset);
+					valueOffset += 4 + utf8Length(value);
+				}
+			}
+			for (IAVLNode node = this.firstNode(); node != null; node = this.successor(node)) {
+				String value = node.getValue();
+				if (value != null) {
+					byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+					out.writeInt(bytes.length);
+					out.write(bytes);
+				}
+			}
+		}
+	}
+
+	// the length of s in UTF-8, without encoding it
+	private static int utf8Length(String s) {
+		int length = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				length += 1;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (!Character.isSurrogate(c)) {
+				length += 3;
+			} else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else {
+				length += 1; // a lone surrogate is encoded as '?'
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * public static MappedAVLTree mapFrom(Path path)
+	 *
+	 * maps a file written by writeTo as a read-only tree. nothing but the header
+	 * is read up front: searches touch only the records on their path.
+	 */
+	public static MappedAVLTree mapFrom(Path path) throws IOException {
+		return MappedAVLTree.map(path);
+	}
+
+	private static final int STREAM_MAGIC = 0x41564C53; // "AVLS"
+	private static final int STREAM_VERSION = 1;
+	private static final int STREAM_BUFFER = 1 << 16;
+
+	/**
+	 * public void writeSorted(WritableByteChannel channel)
+	 *
+	 * streams the items to channel in key order, in a compact binary form that
+	 * readSorted loads back: a header (magic, version, multiset flag, item count)
+	 * and then, per item, the key as a varint (zigzag for the first key, the gap
+	 * from the previous key after that), the number of copies in a multiset, and
+	 * the info as varint(UTF-8 length + 1) followed by the bytes, or 0 for null.
+	 * the tree is written in one in-order walk through a fixed buffer; channel is
+	 * not closed.
+	 */
+	public void writeSorted(WritableByteChannel channel) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocateDirect(STREAM_BUFFER);
+		buf.putInt(STREAM_MAGIC);
+		buf.put((byte) STREAM_VERSION);
+		buf.put((byte) (this.multiset ? 1 : 0));
+		putVarint(buf, this.size());
+
+		long prev = 0;
+		boolean first = true;
+		for (IAVLNode node = this.firstNode(); node != null; node = this.successor(node)) {
+			if (buf.remaining() < 3 * 10) { // room for key, count and length varints
+				drain(channel, buf);
+			}
+			int key = node.getKey();
+			putVarint(buf, first ? ((key << 1) ^ (key >> 31)) & 0xFFFFFFFFL : key - prev);
+			prev = key;
+			first = false;
+			if (this.multiset) {
+				putVarint(buf, ((AVLNode) node).count);
+			}
+			String value = node.getValue();
+			if (value == null) {
+				putVarint(buf, 0);
+				continue;
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			putVarint(buf, bytes.length + 1L);
+			for (int off = 0; off < bytes.length;) {
+				if (!buf.hasRemaining()) {
+					drain(channel, buf);
+				}
+				int n = Math.min(buf.remaining(), bytes.length - off);
+				buf.put(bytes, off, n);
+				off += n;
+			}
+		}
+		drain(channel, buf);
+	}
+
+	/**
+	 * public static AVLTree readSorted(ReadableByteChannel channel)
+	 *
+	 * loads a tree written by writeSorted, in O(n): the items arrive in key order
+	 * and are built into a balanced tree as in fromSorted, without inserts.
+	 * throws IOException if the stream is truncated or isn't in that format.
+	 */
+	public static AVLTree readSorted(ReadableByteChannel channel) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocateDirect(STREAM_BUFFER);
+		buf.flip();
+		int magic = 0;
+		for (int i = 0; i < 4; i++) {
+			magic = (magic << 8) | readByte(channel, buf);
+		}
+		if (magic != STREAM_MAGIC) {
+			throw new IOException("not an AVLTree stream");
+		}
+		int version = readByte(channel, buf);
+		if (version != STREAM_VERSION) {
+			throw new IOException("unsupported AVLTree stream version " + version);
+		}
+		boolean multiset = readByte(channel, buf) != 0;
+		long n = readVarint(channel, buf);
+		if (n > Integer.MAX_VALUE) {
+			throw new IOException("corrupt AVLTree stream: " + n + " items");
+		}
+
+		// grown as items arrive rather than trusting the count for the allocation
+		int[] keys = new int[(int) Math.min(n, 1 << 16)];
+		String[] values = new String[keys.length];
+		int[] counts = multiset ? new int[keys.length] : null;
+		byte[] bytes = new byte[64];
+		long prev = 0;
+		for (int i = 0; i < n; i++) {
+			if (i == keys.length) {
+				int grown = (int) Math.min(n, 2L * keys.length);
+				keys = Arrays.copyOf(keys, grown);
+				values = Arrays.copyOf(values, grown);
+				if (multiset) {
+					counts = Arrays.copyOf(counts, grown);
+				}
+			}
+			long v = readVarint(channel, buf);
+			long key = (i == 0) ? (v >>> 1) ^ -(v & 1) : prev + v;
+			if ((i > 0 && v == 0) || key < Integer.MIN_VALUE || key > Integer.MAX_VALUE) {
+				throw new IOException("corrupt AVLTree stream: keys out of order at item " + i);
+			}
+			keys[i] = (int) key;
+			prev = key;
+			if (multiset) {
+				long c = readVarint(channel, buf);
+				if (c < 1 || c > Integer.MAX_VALUE) {
+					throw new IOException("corrupt AVLTree stream: " + c + " copies at item " + i);
+				}
+				counts[i] = (int) c;
+			}
+			long length = readVarint(channel, buf) - 1;
+			if (length > Integer.MAX_VALUE - 8) {
+				throw new IOException("corrupt AVLTree stream: value of " + length + " bytes");
+			}
+			if (length >= 0) {
+				if (length > bytes.length) {
+					bytes = new byte[(int) Math.max(length, 2L * bytes.length)];
+				}
+				for (int off = 0; off < length;) {
+					if (!buf.hasRemaining()) {
+						refill(channel, buf);
+					}
+					int r = Math.min(buf.remaining(), (int) length - off);
+					buf.get(bytes, off, r);
+					off += r;
+				}
+				values[i] = new String(bytes, 0, (int) length, StandardCharsets.UTF_8);
+			}
+		}
+		return build(multiset, keys, values, counts, (int) n);
+	}
+
+	private static void putVarint(ByteBuffer buf, long v) {
+		while ((v & ~0x7FL) != 0) {
+			buf.put((byte) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		buf.put((byte) v);
+	}
+
+	// writes out and empties buf, which is in write mode
+	private static void drain(WritableByteChannel channel, ByteBuffer buf) throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+		buf.clear();
+	}
+
+	// reads more of the stream into buf, which is in read mode and empty
+	private static void refill(ReadableByteChannel channel, ByteBuffer buf) throws IOException {
+		buf.clear();
+		int r;
+		do {
+			r = channel.read(buf);
+		} while (r == 0);
+		buf.flip();
+		if (r < 0) {
+			throw new EOFException("truncated AVLTree stream");
+		}
+	}
+
+	private static int readByte(ReadableByteChannel channel, ByteBuffer buf) throws IOException {
+		if (!buf.hasRemaining()) {
+			refill(channel, buf);
+		}
+		return buf.get() & 0xFF;
+	}
+
+	private static long readVarint(ReadableByteChannel channel, ByteBuffer buf) throws IOException {
+		long v = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = readByte(channel, buf);
+			v |= (long) (b & 0x7F) << shift;
+			if (b < 0x80) {
+				return v;
+			}
+		}
+		throw new IOException("corrupt AVLTree stream: varint too long");
+	}
+
+	// builds a perfectly balanced subtree of keys[lo..hi] and returns its root
+	private IAVLNode buildBalanced(int[] keys, String[] values, int[] counts, int lo, int hi) {
+		if (lo > hi) {
+			return this.virtualLeaf;
+		}
+		int mid = (lo + hi) >>> 1;
+		IAVLNode node = new AVLNode(keys[mid], (values == null) ? null : values[mid]);
+		if (counts != null) {
+			((AVLNode) node).count = counts[mid];
+		}
+		node.setLeft(this.buildBalanced(keys, values, counts, lo, mid - 1));
+		node.setRight(this.buildBalanced(keys, values, counts, mid + 1, hi));
+		node.getLeft().setParent(node);
+		node.getRight().setParent(node);
+		node.update();
+		node.calcRank();
+		return node;
+	}
+
+	/**
+	 * public int insertAll(int[] keys, String[] values)
+	 *
+	 * inserts the items keys[i] with info values[i] (null info if values is null),
+	 * in any order, and returns how many of them were new. As with insert, an
+	 * existing key keeps its info, and of duplicate keys in the batch the first
+	 * one wins. Large batches are inserted in parallel: the tree is split at the
+	 * batch's median key, both halves are handled as ForkJoin tasks and the
+	 * results are joined back with the median's node.
+	 */
+	public int insertAll(int[] keys, String[] values) {
+		if (values != null && values.length != keys.length) {
+			throw new IllegalArgumentException("keys and values differ in length");
+		}
+		if (this.multiset) { // every copy counts, one insert each
+			int changed = 0;
+			for (int i = 0; i < keys.length; i++) {
+				if (this.insert(keys[i], (values == null) ? null : values[i]) != -1) {
+					changed++;
+				}
+			}
+			return changed;
+		}
+		int[] order = sortedDistinct(keys);
+		int[] batchKeys = new int[order.length];
+		String[] batchValues = new String[order.length];
+		for (int i = 0; i < order.length; i++) {
+			batchKeys[i] = keys[order[i]];
+			batchValues[i] = (values == null) ? null : values[order[i]];
+		}
+		BatchTask task = new BatchTask(this, batchKeys, batchValues, 0, order.length);
+		this.takeOver(ForkJoinPool.commonPool().invoke(task));
+		return task.changed;
+	}
+
+	/**
+	 * public int deleteAll(int[] keys)
+	 *
+	 * deletes the items with the given keys, in any order, and returns how many of
+	 * them were in the tree. Large batches are handled in parallel, like in
+	 * insertAll.
+	 */
+	public int deleteAll(int[] keys) {
+		if (this.multiset) {
+			int changed = 0;
+			for (int k : keys) {
+				if (this.delete(k) != -1) {
+					changed++;
+				}
+			}
+			return changed;
+		}
+		int[] order = sortedDistinct(keys);
+		int[] batchKeys = new int[order.length];
+		for (int i = 0; i < order.length; i++) {
+			batchKeys[i] = keys[order[i]];
+		}
+		BatchTask task = new BatchTask(this, batchKeys, null, 0, order.length);
+		this.takeOver(ForkJoinPool.commonPool().invoke(task));
+		return task.changed;
+	}
+
+	// batches up to this size are applied one key at a time
+	private static final int BATCH_CUTOFF = 1 << 10;
+
+	// returns the indices of keys sorted by key, keeping only the first index of
+	// every key
+	private static int[] sortedDistinct(int[] keys) {
+		long[] packed = new long[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			packed[i] = ((long) keys[i] << 32) | i;
+		}
+		Arrays.sort(packed);
+		int[] order = new int[keys.length];
+		int n = 0;
+		for (int i = 0; i < packed.length; i++) {
+			if (i == 0 || (packed[i] >> 32) != (packed[i - 1] >> 32)) {
+				order[n++] = (int) packed[i];
+			}
+		}
+		return Arrays.copyOf(order, n);
+	}
+
+	// makes this tree hold the nodes of t
+	private void takeOver(AVLTree t) {
+		if (t == this) {
+			return;
+		}
+		this.root = t.root;
+		this.min = t.min;
+		this.max = t.max;
+		this.finger = t.finger;
+		t.root = null;
+		t.min = null;
+		t.max = null;
+		t.finger = null;
+	}
+
+	/**
+	 * private static class BatchTask
+	 *
+	 * applies keys[lo..hi) to a tree (inserts if values were given, deletes if
+	 * values is null) and returns the resulting tree. changed counts the keys that
+	 * were inserted or deleted.
+	 */
+	private static class BatchTask extends RecursiveTask<AVLTree> {
+		private static final long serialVersionUID = 1L;
+
+		private final AVLTree tree;
+		private final int[] keys;
+		private final String[] values;
+		private final int lo;
+		private final int hi;
+		private int changed = 0;
+
+		BatchTask(AVLTree tree, int[] keys, String[] values, int lo, int hi) {
+			this.tree = tree;
+			this.keys = keys;
+			this.values = values;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		private boolean inserting() {
+			return this.values != null;
+		}
+
+		protected AVLTree compute() {
+			AVLTree t = this.tree;
+			if (this.hi - this.lo <= BATCH_CUTOFF || t.empty()) {
+				if (t.empty() && !this.inserting()) {
+					return t;
+				}
+				if (t.empty()) {
+					t.takeOver(fromSorted(Arrays.copyOfRange(this.keys, this.lo, this.hi),
+							Arrays.copyOfRange(this.values, this.lo, this.hi)));
+					this.changed = this.hi - this.lo;
+					return t;
+				}
+				for (int i = this.lo; i < this.hi; i++) {
+					int res = this.inserting() ? t.insert(this.keys[i], this.values[i]) : t.delete(this.keys[i]);
+					if (res != -1) {
+						this.changed++;
+					}
+				}
+				return t;
+			}
+
+			// split around the median key; its node is re-used as the join pivot
+			int mid = (this.lo + this.hi) >>> 1;
+			int pivotKey = this.keys[mid];
+			boolean present = (t.SearchNode(pivotKey) != null);
+			if (!present) {
+				t.insert(pivotKey, this.inserting() ? this.values[mid] : null);
+			}
+			if (present != this.inserting()) { // inserted a new key or deleting an existing one
+				this.changed++;
+			}
+			IAVLNode pivot = t.SearchNode(pivotKey);
+			AVLTree[] parts = t.split(pivotKey, pivot);
+
+			BatchTask left = new BatchTask(parts[0], this.keys, this.values, this.lo, mid);
+			BatchTask right = new BatchTask(parts[1], this.keys, this.values, mid + 1, this.hi);
+			left.fork();
+			AVLTree bigger = right.compute();
+			AVLTree smaller = left.join();
+			this.changed += left.changed + right.changed;
+
+			if (this.inserting()) {
+				smaller.join(pivot, bigger);
+			} else if (smaller.empty()) {
+				smaller.takeOver(bigger);
+			} else if (!bigger.empty()) {
+				// no pivot left between the halves: borrow the max of the smaller one
+				IAVLNode last = smaller.lastNode();
+				smaller.delete(last.getKey());
+				smaller.join(last, bigger);
+			}
+			return smaller;
+		}
+	}
+
+	/**
+	 * public static AVLTree union(AVLTree a, AVLTree b)
+	 *
+	 * Returns a tree with the items of both a and b; for keys in both, a's info is
+	 * kept. a and b are consumed (left empty). Uses the divide-and-conquer
+	 * algorithm on split and join: b's root splits a, the halves are merged
+	 * recursively (in parallel above a size cutoff) and joined back with the root,
+	 * for O(m log(n/m + 1)) work where m <= n are the trees' sizes.
+	 *
+	 * The set operations work on keys, not copies: a and b must not be multiset
+	 * trees (IllegalArgumentException, and nothing is consumed), and the result
+	 * is never one.
+	 */
+	public static AVLTree union(AVLTree a, AVLTree b) {
+		return setOperation(UNION, a, b);
+	}
+
+	/**
+	 * public static AVLTree intersection(AVLTree a, AVLTree b)
+	 *
+	 * Returns a tree with the items of a whose keys are also in b. a and b are
+	 * consumed. Same algorithm, bounds and multiset restriction as union.
+	 */
+	public static AVLTree intersection(AVLTree a, AVLTree b) {
+		return setOperation(INTERSECTION, a, b);
+	}
+
+	/**
+	 * public static AVLTree difference(AVLTree a, AVLTree b)
+	 *
+	 * Returns a tree with the items of a whose keys are not in b. a and b are
+	 * consumed. Same algorithm, bounds and multiset restriction as union.
+	 */
+	public static AVLTree difference(AVLTree a, AVLTree b) {
+		return setOperation(DIFFERENCE, a, b);
+	}
+
+	private static final int UNION = 0;
+	private static final int INTERSECTION = 1;
+	private static final int DIFFERENCE = 2;
+
+	// set operations on fewer items than this run sequentially
+	private static final int SET_CUTOFF = 1 << 12;
+
+	private static AVLTree setOperation(int op, AVLTree a, AVLTree b) {
+		if (a.multiset || b.multiset) {
+			throw new IllegalArgumentException("set operations don't take multiset trees");
+		}
+		AVLTree result = new AVLTree();
+		if (a == b) { // every key is in both
+			if (op != DIFFERENCE) {
+				result.takeOver(a);
+			}
+			return result;
+		}
+		IAVLNode ra = a.empty() ? a.virtualLeaf : a.getRoot();
+		IAVLNode rb = b.empty() ? b.virtualLeaf : b.getRoot();
+		a.takeOver(new AVLTree());
+		b.takeOver(new AVLTree());
+
+		IAVLNode root = ForkJoinPool.commonPool().invoke(new SetTask(op, ra, rb));
+		if (root.isRealNode()) {
+			result.root = root;
+			result.updatemin();
+			result.updatemax();
+		}
+		return result;
+	}
+
+	/**
+	 * private IAVLNode setOperation(int op, IAVLNode a, IAVLNode b)
+	 *
+	 * applies op to the detached subtrees a and b and returns the root of the
+	 * result (a virtual leaf if it is empty).
+	 */
+	private IAVLNode setOperation(int op, IAVLNode a, IAVLNode b) {
+		if (!a.isRealNode() || !b.isRealNode()) {
+			if (op == UNION) {
+				return a.isRealNode() ? a : b;
+			}
+			return (op == INTERSECTION) ? this.virtualLeaf : a;
+		}
+		boolean parallel = a.getSize() + b.getSize() > SET_CUTOFF;
+		IAVLNode bLeft = b.getLeft();
+		IAVLNode bRight = b.getRight();
+		bLeft.setParent(null);
+		bRight.setParent(null);
+		IAVLNode[] parts = this.splitNodes(a, b.getKey());
+
+		IAVLNode l;
+		IAVLNode r;
+		if (parallel) {
+			SetTask left = new SetTask(op, parts[0], bLeft);
+			left.fork();
+			r = this.setOperation(op, parts[2], bRight);
+			l = left.join();
+		} else {
+			l = this.setOperation(op, parts[0], bLeft);
+			r = this.setOperation(op, parts[2], bRight);
+		}
+
+		if (op == UNION) {
+			return this.joinNodes(l, (parts[1] != null) ? parts[1] : b, r);
+		}
+		if (op == INTERSECTION && parts[1] != null) {
+			return this.joinNodes(l, parts[1], r);
+		}
+		return this.joinNodes(l, r);
+	}
+
+	// runs a set operation on a ForkJoin worker, with its own tree for scratch
+	private static class SetTask extends RecursiveTask<IAVLNode> {
+		private static final long serialVersionUID = 1L;
+
+		private final int op;
+		private final IAVLNode a;
+		private final IAVLNode b;
+
+		SetTask(int op, IAVLNode a, IAVLNode b) {
+			this.op = op;
+			this.a = a;
+			this.b = b;
+		}
+
+		protected IAVLNode compute() {
+			return new AVLTree().setOperation(this.op, this.a, this.b);
+		}
+	}
+
+	/**
+	 * private IAVLNode[] splitNodes(IAVLNode node, int k)
+	 *
+	 * splits the detached subtree rooted at node by k. returns {smaller, found,
+	 * bigger}: the roots of the subtrees with keys < k and > k (virtual leaves if
+	 * empty) and the detached node with key k, or null if there is none. every
+	 * node on the search path is re-used as a join pivot, for O(log n) work.
+	 */
+	private IAVLNode[] splitNodes(IAVLNode node, int k) {
+		if (!node.isRealNode()) {
+			return new IAVLNode[] { node, null, node };
+		}
+		IAVLNode l = node.getLeft();
+		IAVLNode r = node.getRight();
+		l.setParent(null);
+		r.setParent(null);
+
+		if (k == node.getKey()) {
+			node.setLeft(this.virtualLeaf);
+			node.setRight(this.virtualLeaf);
+			return new IAVLNode[] { l, node, r };
+		}
+		IAVLNode[] parts;
+		if (k < node.getKey()) {
+			parts = this.splitNodes(l, k);
+			parts[2] = this.joinNodes(parts[2], node, r);
+		} else {
+			parts = this.splitNodes(r, k);
+			parts[0] = this.joinNodes(l, node, parts[0]);
+		}
+		return parts;
+	}
+
+	// joins the detached subtrees l and r, keys(l) < keys(r), with no pivot: the
+	// max of l is taken out to serve as one
+	private IAVLNode joinNodes(IAVLNode l, IAVLNode r) {
+		if (!l.isRealNode()) {
+			return r;
+		}
+		if (!r.isRealNode()) {
+			return l;
+		}
+		IAVLNode[] parts = this.splitLast(l);
+		return this.joinNodes(parts[0], parts[1], r);
+	}
+
+	// returns {rest, last}: the detached subtree without its max node, and that node
+	private IAVLNode[] splitLast(IAVLNode node) {
+		IAVLNode l = node.getLeft();
+		IAVLNode r = node.getRight();
+		l.setParent(null);
+		r.setParent(null);
+		if (!r.isRealNode()) {
+			node.setLeft(this.virtualLeaf);
+			return new IAVLNode[] { l, node };
+		}
+		IAVLNode[] parts = this.splitLast(r);
+		parts[0] = this.joinNodes(l, node, parts[0]);
+		return parts;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of nodes in the tree.
+	 *
+	 * precondition: none postcondition: none
+	 */
+	public int size() {
+		if (this.empty()) {
+			return 0;
+		}
+		return this.root.getSize();
+	}
+
+	/**
+	 * public int getRoot()
+	 *
+	 * Returns the root AVL node, or null if the tree is empty
+	 *
+	 * precondition: none postcondition: none
+	 */
+	public IAVLNode getRoot() {
+		return this.root;
+	}
+
+	// returns the height of the tree, 0 if it's empty
+	public int getHeight() {
+		if (this.empty()) {
+			return 0;
+		}
+		return this.getRoot().getHeight();
+	}
+
+	/**
+	 * public string split(int x)
+	 *
+	 * splits the tree into 2 trees according to the key x. Returns an array [t1,
+	 * t2] with two AVL trees. keys(t1) < x < keys(t2). the item with key x, if
+	 * any, is dropped and this tree is left empty. the nodes on the path to x are
+	 * re-used as join pivots, so the work is O(log n). postcondition: none
+	 */
+	public AVLTree[] split(int x) {
+		if (this.empty()) {
+			return new AVLTree[] { new AVLTree(this.multiset), new AVLTree(this.multiset) };
+		}
+		return this.split(x, this.findPosition(this.getRoot(), x));
+	}
+
+	/**
+	 * private AVLTree[] split(int x, IAVLNode node)
+	 *
+	 * splits the tree by x, where node is the node with key x or, if there is
+	 * none, the node x would be hung from. walks up from node: every ancestor
+	 * is joined, with its subtree on the far side of the path, to the result its
+	 * key belongs to. the joins' costs telescope to O(log n) in total.
+	 */
+	private AVLTree[] split(int x, IAVLNode node) {
+		// the results' min and max are known before anything is moved
+		IAVLNode smallest = this.firstNodeCached();
+		IAVLNode largest = this.lastNodeCached();
+		IAVLNode pred;
+		IAVLNode succ;
+		if (node.getKey() == x) {
+			pred = this.predecessor(node);
+			succ = this.successor(node);
+		} else if (node.getKey() < x) {
+			pred = node;
+			succ = this.successor(node);
+		} else {
+			pred = this.predecessor(node);
+			succ = node;
+		}
+
+		IAVLNode smaller = virtualLeaf;	//root of the keys smaller than x
+		IAVLNode bigger = virtualLeaf;	//root of the keys bigger than x
+		IAVLNode pNode = node;
+		if (node.getKey() == x) {
+			smaller = node.getLeft();
+			bigger = node.getRight();
+			pNode = node.getParent();
+			disconnectNode(node);
+		}
+
+		while (pNode != null) {
+			IAVLNode next = pNode.getParent();
+			if (pNode.getKey() < x) {
+				//adding to the smaller tree
+				IAVLNode subtree = pNode.getLeft();
+				subtree.setParent(null);
+				smaller = this.joinNodes(subtree, pNode, smaller);
+			} else {
+				//adding to the bigger tree
+				IAVLNode subtree = pNode.getRight();
+				subtree.setParent(null);
+				bigger = this.joinNodes(bigger, pNode, subtree);
+			}
+			pNode = next;
+		}
+
+		AVLTree[] result = new AVLTree[2];
+		result[0] = new AVLTree(this.multiset);	//smaller than x
+		result[1] = new AVLTree(this.multiset);	//bigger than x
+		result[0].setTree(smaller, smallest, pred);
+		result[1].setTree(bigger, succ, largest);
+		this.root = null;
+		this.min = null;
+		this.max = null;
+		this.finger = null;
+		return result;
+	}
+
+	// makes the detached subtree root (or a virtual leaf) this tree's content
+	private void setTree(IAVLNode root, IAVLNode min, IAVLNode max) {
+		if (!root.isRealNode()) {
+			return;
+		}
+		this.root = root;
+		this.min = min;
+		this.max = max;
+	}
+	
+	private void disconnectNode(IAVLNode node){
+		node.getLeft().setParent(null);
+		node.getRight().setParent(null);
+		node.setLeft(virtualLeaf);
+		node.setRight(virtualLeaf);
+		node.setParent(null);
+		
+	}
+	/**
+	 * public join(IAVLNode x, AVLTree t)
+	 *
+	 * joins t and x with the tree. Returns the complexity of the operation
+	 * (|tree.rank - t.rank| + 1). precondition: keys(x,t) < keys() or keys(x,t) >
+	 * keys(). t/tree might be empty (rank = -1). postcondition: none
+	 */
+	public int join(IAVLNode x, AVLTree t) {
+		int valtoreturn = Math.abs(this.getHeight() - t.getHeight()) + 1;
+
+		// lets check which tree should be on which side
+		boolean thisIsLeft;
+		if (!this.empty()) {
+			thisIsLeft = this.getRoot().getKey() < x.getKey();
+		} else {
+			thisIsLeft = t.empty() || t.getRoot().getKey() > x.getKey();
+		}
+		AVLTree Ltree = thisIsLeft ? this : t;
+		AVLTree Rtree = thisIsLeft ? t : this;
+		IAVLNode newMin = Ltree.empty() ? x : Ltree.firstNodeCached();
+		IAVLNode newMax = Rtree.empty() ? x : Rtree.lastNodeCached();
+
+		IAVLNode l = Ltree.empty() ? virtualLeaf : Ltree.getRoot();
+		IAVLNode r = Rtree.empty() ? virtualLeaf : Rtree.getRoot();
+		this.root = this.joinNodes(l, x, r);
+		this.min = newMin;
+		this.max = newMax;
+
+		// t's nodes belong to this tree now
+		if (t != this) {
+			t.root = null;
+			t.min = null;
+			t.max = null;
+			t.finger = null;
+		}
+		return valtoreturn;
+	}
+
+	/**
+	 * private IAVLNode joinNodes(IAVLNode l, IAVLNode x, IAVLNode r)
+	 *
+	 * joins the detached subtrees l and r (either may be a virtual leaf) with the
+	 * detached node x, where keys(l) < x < keys(r), and returns the root of the
+	 * result. x is hung on the spine of the taller tree at the height of the
+	 * shorter one and rebalanced upward, so the work is O(|rank(l) - rank(r)| + 1).
+	 */
+	private IAVLNode joinNodes(IAVLNode l, IAVLNode x, IAVLNode r) {
+		int hl = l.getHeight();
+		int hr = r.getHeight();
+
+		if (hl - hr <= 1 && hr - hl <= 1) {
+			//trees are equal in height
+			this.link(x, l, r);
+			x.setParent(null);
+			return x;
+		}
+
+		IAVLNode parent = null;
+		IAVLNode temp;
+		if (hl > hr) {
+			//l is taller than r
+			/* set x to be:
+			 * parent
+			 *	     \
+			 *        x
+			 *      /   \
+			 *  temp      r
+			 */
+			temp = l;
+			while (temp.getHeight() > hr + 1) {
+				parent = temp;
+				temp = temp.getRight();
+			}
+			this.link(x, temp, r);
+			parent.setRight(x);
+		} else {
+			//r is taller than l
+			/* set x to be:
+			 *  	     parent
+			 *	        /
+			 *         x
+			 *       /   \
+			 *      l     temp
+			 */
+			temp = r;
+			while (temp.getHeight() > hl + 1) {
+				parent = temp;
+				temp = temp.getLeft();
+			}
+			this.link(x, l, temp);
+			parent.setLeft(x);
+		}
+		x.setParent(parent);
+		this.rebalance(x);
+		x.updatePath();
+
+		IAVLNode top = x;
+		while (top.getParent() != null) {
+			top = top.getParent();
+		}
+		return top;
+	}
+
+	// makes l and r the sons of x and recalculates x's height, size and rank
+	private void link(IAVLNode x, IAVLNode l, IAVLNode r) {
+		x.setLeft(l);
+		x.setRight(r);
+		l.setParent(x);
+		r.setParent(x);
+		x.update();
+		x.calcRank();
+	}
+
+	// the min node, recalculated if it wasn't kept (e.g. on a tree made by split)
+	private IAVLNode firstNodeCached() {
+		if (this.min == null || !this.min.isRealNode()) {
+			this.updatemin();
+		}
+		return this.min;
+	}
+
+	// the max node, recalculated if it wasn't kept
+	private IAVLNode lastNodeCached() {
+		if (this.max == null || !this.max.isRealNode()) {
+			this.updatemax();
+		}
+		return this.max;
+	}
+
+	public IAVLNode rotateRight(IAVLNode node) {
+
+		IAVLNode leftNode = node.getLeft();
+		IAVLNode parentNode = node.getParent();
+
+		if (parentNode == null) { // node is root
+			this.root = (AVLNode) leftNode;
+
+		} else if (parentNode.getKey() > node.getKey()) { // node is left child
+			parentNode.setLeft(leftNode); // updating parentNode's new child
+
+		} else { // node is right child
+			parentNode.setRight(leftNode);
+		}
+
+		leftNode.setParent(parentNode); // updating leftNode's new parent
+
+		// rotate
+		node.setLeft(leftNode.getRight());
+		leftNode.getRight().setParent(node);
+		leftNode.setRight(node);
+		node.setParent(leftNode);
+
+		// sizes and heights update
+		node.update();
+		leftNode.update();
+
+		return leftNode;
+	}
+
+	public IAVLNode rotateLeft(IAVLNode node) {
+		IAVLNode rightNode = node.getRight();
+		IAVLNode parentNode = node.getParent();
+
+		if (parentNode == null) { // node is root
+			this.root = (AVLNode) rightNode;
+
+		} else if (parentNode.getKey() > node.getKey()) { // node is left child
+			parentNode.setLeft(rightNode); // updating parentNode's new child
+
+		} else { // node is right child
+			parentNode.setRight(rightNode);
+		}
+
+		rightNode.setParent(parentNode); // updating rightNode's new parent
+
+		// rotate
+		node.setRight(rightNode.getLeft());
+		rightNode.getLeft().setParent(node);
+		rightNode.setLeft(node);
+		node.setParent(rightNode);
+
+		// sizes and heights update
+		node.update();
+		rightNode.update();
+
+		return rightNode;
+	}
+
+	public IAVLNode findPosition(IAVLNode currNode, int k) {
+		IAVLNode tmp = null; // always a step before the currNode
+
+		while (currNode.isRealNode()) {
+			tmp = currNode;
+			if (k < currNode.getKey()) {
+				currNode = currNode.getLeft();
+			} else if (k > currNode.getKey()) {
+				currNode = currNode.getRight();
+			} else { // k == currNode.key
+				return currNode; // return an inner node
+			}
+		}
+		return tmp; // return a leaf or null if tree is empty
+	}
+
+	/**
+	 * public class Cursor
+	 *
+	 * A position in the tree that moves in key order through parent pointers.
+	 * seek, first and last cost O(log n); next and prev cost O(1) amortized.
+	 * Every move returns true if the cursor is on an item afterwards.
+	 */
+	public class Cursor {
+		private IAVLNode node = null;
+
+		// positions the cursor on the smallest key >= k
+		public boolean seek(int k) {
+			this.node = AVLTree.this.ceilingNode(k);
+			return this.valid();
+		}
+
+		public boolean first() {
+			this.node = AVLTree.this.firstNode();
+			return this.valid();
+		}
+
+		public boolean last() {
+			this.node = AVLTree.this.lastNode();
+			return this.valid();
+		}
+
+		public boolean next() {
+			if (this.node != null) {
+				this.node = AVLTree.this.successor(this.node);
+			}
+			return this.valid();
+		}
+
+		public boolean prev() {
+			if (this.node != null) {
+				this.node = AVLTree.this.predecessor(this.node);
+			}
+			return this.valid();
+		}
+
+		public boolean valid() {
+			return this.node != null;
+		}
+
+		public int key() {
+			return this.current().getKey();
+		}
+
+		public String value() {
+			return this.current().getValue();
+		}
+
+		private IAVLNode current() {
+			if (this.node == null) {
+				throw new NoSuchElementException("cursor is not on an item");
+			}
+			return this.node;
+		}
+	}
+
+	// walks the nodes from a start node through successor links
+	private class NodeSpliterator implements Spliterator<IAVLNode> {
+		private IAVLNode next;
+		private long remaining;
+
+		NodeSpliterator(IAVLNode first, long size) {
+			this.next = first;
+			this.remaining = size;
+		}
+
+		public boolean tryAdvance(Consumer<? super IAVLNode> action) {
+			if (this.next == null) {
+				return false;
+			}
+			IAVLNode node = this.next;
+			this.next = AVLTree.this.successor(node);
+			this.remaining--;
+			action.accept(node);
+			return true;
+		}
+
+		public void forEachRemaining(Consumer<? super IAVLNode> action) {
+			IAVLNode node = this.next;
+			this.next = null;
+			this.remaining = 0;
+			while (node != null) {
+				action.accept(node);
+				node = AVLTree.this.successor(node);
+			}
+		}
+
+		public Spliterator<IAVLNode> trySplit() {
+			return null;
+		}
+
+		public long estimateSize() {
+			return this.remaining;
+		}
+
+		public int characteristics() {
+			return Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.SIZED;
+		}
+	}
+
+	/**
+	 * public interface IAVLNode ! Do not delete or modify this - otherwise all
+	 * tests will fail !
+	 */
+	public interface IAVLNode {
+		public int getKey(); // returns node's key (for virtual node return -1)
+		public String getValue(); // returns node's value [info] (for virtual node return null)
+		public void setLeft(IAVLNode node); // sets left child
+		public IAVLNode getLeft(); // returns left child (if there is no left child return null)
+		public void setRight(IAVLNode node); // sets right child
+		public IAVLNode getRight(); // returns right child (if there is no right child return null)
+		public void setParent(IAVLNode node); // sets parent
+		public IAVLNode getParent(); // returns the parent (if there is no parent return null)
+		public boolean isRealNode(); // Returns True if this is a non-virtual AVL node
+		public void setHeight(int height); // sets the height of the node
+		public int getHeight(); // Returns the height of the node (-1 for virtual nodes)
+		public int getSize(); // returns the size of the node's subtree including the node itself
+		public void promote(); // promote rank
+		public void demote(); // demote rank
+		public int getRank(); // returns node's rank
+		public int rankDiffRight(); // returns rank difference between the node and it's right child
+		public int rankDiffLeft(); // returns rank difference between the node and it's left child
+		public void update(); // update node's height and size
+		public void updatePath(); // update the height and size of the path from the the giving node to the root
+		public void setSize(int i); //sets the node's new size
+		public void calcRank(); //calc node's rank according to it's height
+	}
+
+	/**
+	 * public class AVLNode
+	 *
+	 * If you wish to implement classes other than AVLTree (for example AVLNode), do
+	 * it in this file, not in another file. This class can and must be modified.
+	 * (It must implement IAVLNode)
+	 */
+	public class AVLNode implements IAVLNode {
+		private int key;
+		private String val;
+		private AVLNode left = null;
+		private AVLNode right = null;
+		private AVLNode parent = null;
+		private int height;
+		private int size;
+		private int rank;
+		private int count; // copies of the key, more than 1 only in a multiset
+		private int weight; // the sum of count over the subtree
+
+		public AVLNode(int Key, String Val) {
+			this.key = Key;
+			this.val = Val;
+			this.left = (AVLNode) virtualLeaf;
+			this.right = (AVLNode) virtualLeaf;
+			this.height = 0;
+			this.size = 1;
+			this.rank = 0;
+			this.count = 1;
+			this.weight = 1;
+		}
+
+		public AVLNode() {
+			this.key = -1;
+			this.val = null;
+			this.left = null;
+			this.right = null;
+			this.height = -1;
+			this.size = 0;
+			this.rank = -1;
+			this.count = 0;
+			this.weight = 0;
+		}
+
+		public int getKey() {
+			return this.key; // returns key
+		}
+
+		public String getValue() {
+			return this.val; // returns value
+		}
+
+		public void setLeft(IAVLNode node) {
+			if (this.isRealNode()) { // virtual nodes are shared, so they never change
+				this.left = (AVLNode) node;
+			}
+		}
+
+		public IAVLNode getLeft() {
+			if (!this.isRealNode()) {
+				return null;
+			}
+			return this.left; // returns the left child of the node if it has one, or null otherwise
+		}
+
+		public void setRight(IAVLNode node) {
+			if (this.isRealNode()) {
+				this.right = (AVLNode) node;
+			}
+		}
+
+		public IAVLNode getRight() {
+			if (!this.isRealNode()) {
+				return null;
+			}
+			return this.right; // returns the right child of the node if it has one, or null otherwise
+		}
+
+		public void setParent(IAVLNode node) {
+			if (this.isRealNode()) {
+				this.parent = (AVLNode) node; // sets the given node as the parent of the current node
+			}
+		}
+
+		public IAVLNode getParent() {
+			return this.parent; // to be replaced by student code
+		}
+
+		// Returns True if this is a non-virtual AVL node
+		public boolean isRealNode() {
+			return this.height != -1; // only virtual nodes have height -1, so -1 is a valid key
+		}
+
+		public void setHeight(int height) {
+			if (this.isRealNode()) {
+				this.height = height;
+			}
+		}
+
+		public int getHeight() {
+			return this.height; // to be replaced by student code
+		}
+		public void calcRank() {
+			this.rank = 1 + Math.max(this.left.height, this.right.height);
+		}
+
+		public int getSize() {
+			return this.size;
+		}
+		
+		public void setSize(int i) {
+			if (this.isRealNode()) {
+				this.size=(i);
+			}
+		}
+
+		public void promote() {
+			if (this.isRealNode()) {
+				this.rank++;
+			}
+		}
+
+		public void demote() {
+			if (this.isRealNode()) {
+				this.rank--;
+			}
+		}
+
+		public int getRank() {
+			return this.rank;
+		}
+
+		public int rankDiffRight() {
+			if (this.isRealNode() == false) {
+				return 0;
+			}
+			return (this.rank - this.right.rank);
+		}
+
+		public int rankDiffLeft() {
+			if (this.isRealNode() == false) {
+				return 0;
+			}
+			return this.rank - this.left.rank;
+		}
+
+		public void update() {
+			this.size = 1; // the node itself
+
+			if (this.right.isRealNode()) { // adding right subtree size
+				this.size += this.right.size;
+			}
+			if (this.left.isRealNode()) { // adding left subtree size
+				this.size += this.left.size;
+			}
+			this.height = 1 + Math.max(this.left.height, this.right.height);
+			this.weight = this.count + this.left.weight + this.right.weight;
+		}
+
+		public void updatePath() {
+			IAVLNode curr = this;
+			while (curr != null) {
+				curr.update();
+				curr = curr.getParent();
+			}
+		}
+
+	}
+
+}
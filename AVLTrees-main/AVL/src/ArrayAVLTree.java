@@ -0,0 +1,661 @@
+import java.util.Arrays;
+
+/**
+ *
+ * ArrayAVLTree
+ *
+ * An AVL tree with distinct integer keys and info, with the same public API as
+ * AVLTree, that keeps its nodes in parallel arrays instead of node objects. A
+ * node is an int index into the arrays of a Storage; index 0 (NIL) stands for
+ * the virtual leaf. Deleted slots are recycled through a free list.
+ *
+ * Trees produced by split share the Storage of the tree they were split from,
+ * so split and join only relink indices and never copy nodes.
+ *
+ */
+public class ArrayAVLTree {
+
+	static final int NIL = 0;
+
+	private final Storage store;
+	private int root = NIL;
+	private int min = NIL;
+	private int max = NIL;
+
+	public ArrayAVLTree() {
+		this(new Storage(16));
+	}
+
+	public ArrayAVLTree(int expectedSize) {
+		this(new Storage(expectedSize + 1));
+	}
+
+	private ArrayAVLTree(Storage store) {
+		this.store = store;
+	}
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the tree is empty
+	 *
+	 */
+	public boolean empty() {
+		return this.root == NIL;
+	}
+
+	/**
+	 * public String search(int k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree otherwise,
+	 * returns null
+	 */
+	public String search(int k) {
+		int[] key = store.key;
+		int node = this.root;
+		while (node != NIL) {
+			int nodeKey = key[node];
+			if (k == nodeKey) {
+				return store.value[node];
+			}
+			node = (k < nodeKey) ? store.left[node] : store.right[node];
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 *
+	 * inserts an item with key k and info i to the tree. returns the number of
+	 * rebalancing operations (counted as in AVLTree.insert), or -1 if an item with
+	 * key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		Storage s = this.store;
+		if (this.root == NIL) {
+			int node = s.allocate(k, i);
+			this.root = node;
+			this.min = node;
+			this.max = node;
+			return 0;
+		}
+
+		int position = this.root;
+		while (true) {
+			int posKey = s.key[position];
+			if (k == posKey) { // key already exists
+				return -1;
+			}
+			int next = (k < posKey) ? s.left[position] : s.right[position];
+			if (next == NIL) {
+				break;
+			}
+			position = next;
+		}
+
+		int node = s.allocate(k, i);
+		s.parent[node] = position;
+		if (k < s.key[position]) {
+			s.left[position] = node;
+			if (k < s.key[this.min]) {
+				this.min = node;
+			}
+		} else {
+			s.right[position] = node;
+			if (k > s.key[this.max]) {
+				this.max = node;
+			}
+		}
+		return this.fixInsert(position);
+	}
+
+	// walks up from the parent of a new leaf, fixing sizes on the whole path and
+	// heights only until a subtree's height stops changing
+	private int fixInsert(int node) {
+		Storage s = this.store;
+		int cnt = 0;
+		boolean balancing = true;
+		while (node != NIL) {
+			if (!balancing) {
+				s.size[node]++;
+				node = s.parent[node];
+				continue;
+			}
+			int oldHeight = s.height[node];
+			int balance = s.height[s.left[node]] - s.height[s.right[node]];
+			if (balance > 1 || balance < -1) {
+				cnt += this.isDoubleRotation(node) ? 5 : 2;
+				node = this.rebalanceNode(node);
+				balancing = false; // a rotation after an insertion is terminal
+			} else {
+				s.update(node);
+				if (s.height[node] == oldHeight) {
+					balancing = false;
+				} else {
+					cnt++; // promotion
+				}
+			}
+			node = s.parent[node];
+		}
+		return cnt;
+	}
+
+	/**
+	 * public int delete(int k)
+	 *
+	 * deletes an item with key k from the tree, if it is there. returns the number
+	 * of rebalancing operations, or -1 if an item with key k was not found in the
+	 * tree.
+	 */
+	public int delete(int k) {
+		Storage s = this.store;
+		int node = this.root;
+		while (node != NIL && s.key[node] != k) {
+			node = (k < s.key[node]) ? s.left[node] : s.right[node];
+		}
+		if (node == NIL) {
+			return -1;
+		}
+
+		if (node == this.min) {
+			this.min = s.successor(node);
+		}
+		if (node == this.max) {
+			this.max = s.predecessor(node);
+		}
+
+		if (s.left[node] != NIL && s.right[node] != NIL) {
+			// move the successor's item into node, then unlink the successor instead
+			int successor = s.right[node];
+			while (s.left[successor] != NIL) {
+				successor = s.left[successor];
+			}
+			s.key[node] = s.key[successor];
+			s.value[node] = s.value[successor];
+			if (this.min == successor) {
+				this.min = node;
+			}
+			if (this.max == successor) {
+				this.max = node;
+			}
+			node = successor;
+		}
+
+		int child = (s.left[node] != NIL) ? s.left[node] : s.right[node];
+		int p = s.parent[node];
+		if (child != NIL) {
+			s.parent[child] = p;
+		}
+		this.replaceChild(p, node, child);
+		s.release(node);
+
+		int cnt = 0;
+		while (p != NIL) {
+			int oldHeight = s.height[p];
+			int balance = s.height[s.left[p]] - s.height[s.right[p]];
+			if (balance > 1 || balance < -1) {
+				cnt += this.isDoubleRotation(p) ? 6 : 3;
+				p = this.rebalanceNode(p);
+			} else {
+				s.update(p);
+				if (s.height[p] != oldHeight) {
+					cnt++; // demotion
+				}
+			}
+			p = s.parent[p];
+		}
+		return cnt;
+	}
+
+	// restores the balance of node (whose children are balanced) with a single or
+	// double rotation, and returns the new root of its subtree
+	private int rebalanceNode(int node) {
+		Storage s = this.store;
+		int top;
+		if (s.height[s.left[node]] > s.height[s.right[node]]) {
+			int l = s.left[node];
+			if (s.height[s.left[l]] < s.height[s.right[l]]) {
+				s.rotateLeft(l);
+			}
+			top = s.rotateRight(node);
+		} else {
+			int r = s.right[node];
+			if (s.height[s.right[r]] < s.height[s.left[r]]) {
+				s.rotateRight(r);
+			}
+			top = s.rotateLeft(node);
+		}
+		if (s.parent[top] == NIL) {
+			this.root = top;
+		}
+		return top;
+	}
+
+	// true if rebalancing node needs a double rotation
+	private boolean isDoubleRotation(int node) {
+		Storage s = this.store;
+		int l = s.left[node];
+		int r = s.right[node];
+		if (s.height[l] > s.height[r]) {
+			return s.height[s.left[l]] < s.height[s.right[l]];
+		}
+		return s.height[s.right[r]] < s.height[s.left[r]];
+	}
+
+	private void replaceChild(int p, int oldChild, int newChild) {
+		if (p == NIL) {
+			this.root = newChild;
+		} else if (this.store.left[p] == oldChild) {
+			this.store.left[p] = newChild;
+		} else {
+			this.store.right[p] = newChild;
+		}
+	}
+
+	/**
+	 * public String min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String min() {
+		return this.empty() ? null : this.store.value[this.min];
+	}
+
+	/**
+	 * public String max()
+	 *
+	 * Returns the info of the item with the largest key in the tree, or null if the
+	 * tree is empty
+	 */
+	public String max() {
+		return this.empty() ? null : this.store.value[this.max];
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree, or an empty array
+	 * if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		int[] keysArray = new int[this.size()];
+		int i = 0;
+		for (int node = this.min; node != NIL; node = this.store.successor(node)) {
+			keysArray[i++] = this.store.key[node];
+		}
+		return keysArray;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		String[] infoArray = new String[this.size()];
+		int i = 0;
+		for (int node = this.min; node != NIL; node = this.store.successor(node)) {
+			infoArray[i++] = this.store.value[node];
+		}
+		return infoArray;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of nodes in the tree.
+	 */
+	public int size() {
+		return this.store.size[this.root];
+	}
+
+	// returns the height of the tree, 0 if it's empty
+	public int getHeight() {
+		return Math.max(this.store.height[this.root] - 1, 0);
+	}
+
+	/**
+	 * public ArrayAVLTree[] split(int x)
+	 *
+	 * splits the tree into 2 trees according to the key x. Returns an array [t1,
+	 * t2] with two trees, keys(t1) < x < keys(t2); the item with key x, if any, is
+	 * dropped. Both trees share this tree's storage, which must not be used
+	 * afterwards.
+	 */
+	public ArrayAVLTree[] split(int x) {
+		Storage s = this.store;
+		int node = this.root;
+		int last = NIL;
+		while (node != NIL && s.key[node] != x) {
+			last = node;
+			node = (x < s.key[node]) ? s.left[node] : s.right[node];
+		}
+
+		int smaller = NIL;
+		int bigger = NIL;
+		int curr = last;
+		if (node != NIL) {
+			smaller = this.detach(s.left[node]);
+			bigger = this.detach(s.right[node]);
+			curr = s.parent[node];
+			s.release(node);
+		}
+
+		// every ancestor becomes the pivot joining its other subtree to one side
+		while (curr != NIL) {
+			int p = s.parent[curr];
+			if (s.key[curr] < x) {
+				smaller = s.join(this.detach(s.left[curr]), curr, smaller);
+			} else {
+				bigger = s.join(bigger, curr, this.detach(s.right[curr]));
+			}
+			curr = p;
+		}
+
+		ArrayAVLTree[] result = new ArrayAVLTree[2];
+		result[0] = new ArrayAVLTree(s);
+		result[0].setRoot(smaller);
+		result[1] = new ArrayAVLTree(s);
+		result[1].setRoot(bigger);
+		this.root = NIL;
+		this.min = NIL;
+		this.max = NIL;
+		return result;
+	}
+
+	/**
+	 * public int join(int k, String i, ArrayAVLTree t)
+	 *
+	 * joins t and an item with key k and info i with the tree. Returns the
+	 * complexity of the operation (|tree.rank - t.rank| + 1). precondition:
+	 * keys(t) < k < keys() or keys() < k < keys(t). t becomes unusable afterwards.
+	 */
+	public int join(int k, String i, ArrayAVLTree t) {
+		int valtoreturn = Math.abs(this.getHeight() - t.getHeight()) + 1;
+		Storage s = this.store;
+		int other = (t.store == s) ? t.root : s.copyOf(t);
+		int pivot = s.allocate(k, i);
+
+		boolean thisIsLeft = (this.root != NIL) ? s.key[this.root] < k : (other == NIL || s.key[other] > k);
+		int joined = thisIsLeft ? s.join(this.root, pivot, other) : s.join(other, pivot, this.root);
+		this.setRoot(joined);
+		t.root = NIL;
+		t.min = NIL;
+		t.max = NIL;
+		return valtoreturn;
+	}
+
+	private int detach(int node) {
+		if (node != NIL) {
+			this.store.parent[node] = NIL;
+		}
+		return node;
+	}
+
+	private void setRoot(int node) {
+		Storage s = this.store;
+		this.root = node;
+		this.min = node;
+		this.max = node;
+		if (node == NIL) {
+			return;
+		}
+		s.parent[node] = NIL;
+		while (s.left[this.min] != NIL) {
+			this.min = s.left[this.min];
+		}
+		while (s.right[this.max] != NIL) {
+			this.max = s.right[this.max];
+		}
+	}
+
+	/**
+	 * class Storage
+	 *
+	 * the parallel arrays holding the nodes. height counts nodes on the longest
+	 * path, so NIL has height 0 and size 0, and a leaf has height 1.
+	 */
+	static final class Storage {
+		int[] key;
+		int[] left;
+		int[] right;
+		int[] parent;
+		int[] height;
+		int[] size;
+		String[] value;
+		private int next = 1; // first slot that was never used
+		private int free = NIL; // head of the free list, linked through left[]
+
+		Storage(int capacity) {
+			capacity = Math.max(capacity, 2);
+			this.key = new int[capacity];
+			this.left = new int[capacity];
+			this.right = new int[capacity];
+			this.parent = new int[capacity];
+			this.height = new int[capacity];
+			this.size = new int[capacity];
+			this.value = new String[capacity];
+		}
+
+		int allocate(int k, String v) {
+			int node = this.free;
+			if (node != NIL) {
+				this.free = this.left[node];
+			} else {
+				if (this.next == this.key.length) {
+					this.grow();
+				}
+				node = this.next++;
+			}
+			this.key[node] = k;
+			this.value[node] = v;
+			this.left[node] = NIL;
+			this.right[node] = NIL;
+			this.parent[node] = NIL;
+			this.height[node] = 1;
+			this.size[node] = 1;
+			return node;
+		}
+
+		void release(int node) {
+			this.value[node] = null;
+			this.height[node] = 0;
+			this.size[node] = 0;
+			this.left[node] = this.free;
+			this.free = node;
+		}
+
+		private void grow() {
+			int capacity = this.key.length + (this.key.length >> 1) + 1;
+			this.key = Arrays.copyOf(this.key, capacity);
+			this.left = Arrays.copyOf(this.left, capacity);
+			this.right = Arrays.copyOf(this.right, capacity);
+			this.parent = Arrays.copyOf(this.parent, capacity);
+			this.height = Arrays.copyOf(this.height, capacity);
+			this.size = Arrays.copyOf(this.size, capacity);
+			this.value = Arrays.copyOf(this.value, capacity);
+		}
+
+		void update(int node) {
+			int l = this.left[node];
+			int r = this.right[node];
+			this.height[node] = 1 + Math.max(this.height[l], this.height[r]);
+			this.size[node] = 1 + this.size[l] + this.size[r];
+		}
+
+		int successor(int node) {
+			if (this.right[node] != NIL) {
+				node = this.right[node];
+				while (this.left[node] != NIL) {
+					node = this.left[node];
+				}
+				return node;
+			}
+			int p = this.parent[node];
+			while (p != NIL && this.right[p] == node) {
+				node = p;
+				p = this.parent[p];
+			}
+			return p;
+		}
+
+		int predecessor(int node) {
+			if (this.left[node] != NIL) {
+				node = this.left[node];
+				while (this.right[node] != NIL) {
+					node = this.right[node];
+				}
+				return node;
+			}
+			int p = this.parent[node];
+			while (p != NIL && this.left[p] == node) {
+				node = p;
+				p = this.parent[p];
+			}
+			return p;
+		}
+
+		/**
+		 * int join(int l, int m, int r)
+		 *
+		 * joins the detached subtrees l and r with the detached node m, where keys(l)
+		 * < key(m) < keys(r). returns the root of the joined tree. the work is
+		 * proportional to the height difference of l and r.
+		 */
+		int join(int l, int m, int r) {
+			int hl = this.height[l];
+			int hr = this.height[r];
+			if (hl > hr + 1) {
+				int p = NIL;
+				int c = l;
+				while (this.height[c] > hr + 1) {
+					p = c;
+					c = this.right[c];
+				}
+				this.link(m, c, r);
+				this.right[p] = m;
+				this.parent[m] = p;
+				return this.fixUp(p);
+			}
+			if (hr > hl + 1) {
+				int p = NIL;
+				int c = r;
+				while (this.height[c] > hl + 1) {
+					p = c;
+					c = this.left[c];
+				}
+				this.link(m, l, c);
+				this.left[p] = m;
+				this.parent[m] = p;
+				return this.fixUp(p);
+			}
+			this.link(m, l, r);
+			this.parent[m] = NIL;
+			return m;
+		}
+
+		private void link(int m, int l, int r) {
+			this.left[m] = l;
+			this.right[m] = r;
+			if (l != NIL) {
+				this.parent[l] = m;
+			}
+			if (r != NIL) {
+				this.parent[r] = m;
+			}
+			this.update(m);
+		}
+
+		// updates and rebalances every node from node up to its root, and returns
+		// the root
+		private int fixUp(int node) {
+			int top = node;
+			while (node != NIL) {
+				int balance = this.height[this.left[node]] - this.height[this.right[node]];
+				if (balance > 1) {
+					int l = this.left[node];
+					if (this.height[this.left[l]] < this.height[this.right[l]]) {
+						this.rotateLeft(l);
+					}
+					node = this.rotateRight(node);
+				} else if (balance < -1) {
+					int r = this.right[node];
+					if (this.height[this.right[r]] < this.height[this.left[r]]) {
+						this.rotateRight(r);
+					}
+					node = this.rotateLeft(node);
+				} else {
+					this.update(node);
+				}
+				top = node;
+				node = this.parent[node];
+			}
+			return top;
+		}
+
+		int rotateRight(int node) {
+			int l = this.left[node];
+			int p = this.parent[node];
+			int moved = this.right[l];
+			this.left[node] = moved;
+			if (moved != NIL) {
+				this.parent[moved] = node;
+			}
+			this.right[l] = node;
+			this.parent[node] = l;
+			this.parent[l] = p;
+			if (p != NIL) {
+				if (this.left[p] == node) {
+					this.left[p] = l;
+				} else {
+					this.right[p] = l;
+				}
+			}
+			this.update(node);
+			this.update(l);
+			return l;
+		}
+
+		int rotateLeft(int node) {
+			int r = this.right[node];
+			int p = this.parent[node];
+			int moved = this.left[r];
+			this.right[node] = moved;
+			if (moved != NIL) {
+				this.parent[moved] = node;
+			}
+			this.left[r] = node;
+			this.parent[node] = r;
+			this.parent[r] = p;
+			if (p != NIL) {
+				if (this.left[p] == node) {
+					this.left[p] = r;
+				} else {
+					this.right[p] = r;
+				}
+			}
+			this.update(node);
+			this.update(r);
+			return r;
+		}
+
+		// copies the nodes of a tree kept in another storage into this one as a
+		// perfectly balanced subtree, and returns its root
+		int copyOf(ArrayAVLTree t) {
+			return this.build(t.keysToArray(), t.infoToArray(), 0, t.size() - 1);
+		}
+
+		private int build(int[] keys, String[] values, int lo, int hi) {
+			if (lo > hi) {
+				return NIL;
+			}
+			int mid = (lo + hi) >>> 1;
+			int node = this.allocate(keys[mid], values[mid]);
+			this.link(node, this.build(keys, values, lo, mid - 1), this.build(keys, values, mid + 1, hi));
+			return node;
+		}
+	}
+
+}
@@ -0,0 +1,582 @@
+import java.util.Arrays;
+
+/**
+ *
+ * BucketAVLTree
+ *
+ * An AVL tree whose nodes are sorted pages of up to MAX_KEYS items instead of
+ * single items (a T-tree): every key in a node's left subtree is smaller than
+ * its page's first key and every key in its right subtree is larger than its
+ * last. A search follows about log2(n / MAX_KEYS) links and then binary
+ * searches one page held in two contiguous arrays, instead of taking a cache
+ * miss on every one of log2(n) levels.
+ *
+ * A full page splits in half and its upper half becomes a new node at the
+ * front of its right subtree; a page that drops below MIN_KEYS refills from
+ * the neighbouring page in its subtree (merging with it if both fit in one).
+ * The pages are the nodes of the AVL spine, so both go through the same
+ * rotations. split works on whole pages and may leave the pages at the cut
+ * underfull; join hangs its item as a new page and then refills it the way
+ * delete refills a page, so repeated joins don't pile up one-item pages.
+ *
+ */
+public class BucketAVLTree {
+
+	static final int MAX_KEYS = 64;
+	static final int MIN_KEYS = MAX_KEYS / 2;
+
+	private Node root = null;
+	private boolean changed; // set by the current update if it changed the item set
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return this.root == null;
+	}
+
+	/**
+	 * public String search(int k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree otherwise,
+	 * returns null
+	 */
+	public String search(int k) {
+		Node node = this.root;
+		while (node != null) {
+			int[] keys = node.keys;
+			if (k < keys[0]) {
+				node = node.left;
+			} else if (k > keys[node.n - 1]) {
+				node = node.right;
+			} else {
+				int j = Arrays.binarySearch(keys, 0, node.n, k);
+				return (j >= 0) ? node.vals[j] : null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 *
+	 * inserts an item with key k and info i to the tree. returns 0, or -1 if an
+	 * item with key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		this.changed = false;
+		this.root = this.insert(this.root, k, i);
+		return this.changed ? 0 : -1;
+	}
+
+	private Node insert(Node node, int k, String i) {
+		if (node == null) {
+			this.changed = true;
+			Node page = new Node();
+			page.add(0, k, i);
+			page.update();
+			return page;
+		}
+		if (k < node.keys[0] && node.left != null) {
+			node.left = this.insert(node.left, k, i);
+		} else if (k > node.keys[node.n - 1] && node.right != null) {
+			node.right = this.insert(node.right, k, i);
+		} else {
+			// k belongs in this page: it's in its range, or there is no subtree
+			// on its side
+			int j = Arrays.binarySearch(node.keys, 0, node.n, k);
+			if (j >= 0) {
+				return node;
+			}
+			this.changed = true;
+			node.add(-j - 1, k, i);
+			if (node.n > MAX_KEYS) {
+				Node upper = new Node();
+				node.moveTo(upper, MIN_KEYS, node.n - MIN_KEYS, 0);
+				upper.update();
+				node.right = this.insertFirst(node.right, upper);
+			}
+		}
+		return this.changed ? this.balance(node) : node;
+	}
+
+	// adds page, whose keys are all smaller than node's subtree's, as its first node
+	private Node insertFirst(Node node, Node page) {
+		if (node == null) {
+			return page;
+		}
+		node.left = this.insertFirst(node.left, page);
+		return this.balance(node);
+	}
+
+	/**
+	 * public int delete(int k)
+	 *
+	 * deletes an item with key k from the tree if it is there. returns 0, or -1
+	 * if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		this.changed = false;
+		this.root = this.delete(this.root, k);
+		return this.changed ? 0 : -1;
+	}
+
+	private Node delete(Node node, int k) {
+		if (node == null) {
+			return null;
+		}
+		if (k < node.keys[0]) {
+			node.left = this.delete(node.left, k);
+		} else if (k > node.keys[node.n - 1]) {
+			node.right = this.delete(node.right, k);
+		} else {
+			int j = Arrays.binarySearch(node.keys, 0, node.n, k);
+			if (j < 0) {
+				return node;
+			}
+			this.changed = true;
+			node.remove(j);
+			if (node.n < MIN_KEYS) {
+				if (!this.refill(node)) {
+					return null; // an empty page with no children
+				}
+			}
+		}
+		return this.changed ? this.balance(node) : node;
+	}
+
+	// brings node's page back to MIN_KEYS items from its successor page (or,
+	// without a right subtree, its predecessor page), taking the whole page if
+	// both fit in one. a page without children stays as it is; returns false if
+	// it is empty
+	private boolean refill(Node node) {
+		if (node.right != null) {
+			Node next = first(node.right);
+			if (node.n + next.n <= MAX_KEYS) {
+				next.moveTo(node, 0, next.n, node.n);
+				node.right = this.deleteFirst(node.right);
+			} else {
+				int m = MIN_KEYS - node.n;
+				next.moveTo(node, 0, m, node.n);
+				shrinkPath(node.right, next, m);
+			}
+		} else if (node.left != null) {
+			Node prev = last(node.left);
+			if (node.n + prev.n <= MAX_KEYS) {
+				prev.moveTo(node, 0, prev.n, 0);
+				node.left = this.deleteLast(node.left);
+			} else {
+				int m = MIN_KEYS - node.n;
+				prev.moveTo(node, prev.n - m, m, 0);
+				shrinkPath(node.left, prev, m);
+			}
+		}
+		return node.n > 0;
+	}
+
+	// subtracts m from the sizes on the path from node down to target
+	private static void shrinkPath(Node node, Node target, int m) {
+		int k = target.keys[0];
+		while (true) {
+			node.size -= m;
+			if (node == target) {
+				return;
+			}
+			node = (k < node.keys[0]) ? node.left : node.right;
+		}
+	}
+
+	private Node deleteFirst(Node node) {
+		if (node.left == null) {
+			return node.right;
+		}
+		node.left = this.deleteFirst(node.left);
+		return this.balance(node);
+	}
+
+	private Node deleteLast(Node node) {
+		if (node.right == null) {
+			return node.left;
+		}
+		node.right = this.deleteLast(node.right);
+		return this.balance(node);
+	}
+
+	private static Node first(Node node) {
+		while (node.left != null) {
+			node = node.left;
+		}
+		return node;
+	}
+
+	private static Node last(Node node) {
+		while (node.right != null) {
+			node = node.right;
+		}
+		return node;
+	}
+
+	/**
+	 * private Node balance(Node node)
+	 *
+	 * node's children's heights differ by at most 2. fixes node's height and
+	 * size, rotating if needed, and returns the root of its subtree.
+	 */
+	private Node balance(Node node) {
+		int hl = height(node.left);
+		int hr = height(node.right);
+		if (hl > hr + 1) {
+			if (height(node.left.left) < height(node.left.right)) {
+				node.left = rotateLeft(node.left);
+			}
+			return rotateRight(node);
+		}
+		if (hr > hl + 1) {
+			if (height(node.right.right) < height(node.right.left)) {
+				node.right = rotateRight(node.right);
+			}
+			return rotateLeft(node);
+		}
+		node.update();
+		return node;
+	}
+
+	private static Node rotateRight(Node node) {
+		Node left = node.left;
+		node.left = left.right;
+		left.right = node;
+		node.update();
+		left.update();
+		return left;
+	}
+
+	private static Node rotateLeft(Node node) {
+		Node right = node.right;
+		node.right = right.left;
+		right.left = node;
+		node.update();
+		right.update();
+		return right;
+	}
+
+	/**
+	 * private Node join(Node l, Node x, Node r)
+	 *
+	 * returns a tree of l, the page x and r, where keys(l) < keys(x) < keys(r),
+	 * by walking down the spine of the taller tree to the height of the shorter
+	 * one. O(|height(l) - height(r)| + 1).
+	 */
+	private Node join(Node l, Node x, Node r) {
+		int hl = height(l);
+		int hr = height(r);
+		if (hl > hr + 1) {
+			l.right = this.join(l.right, x, r);
+			return this.balance(l);
+		}
+		if (hr > hl + 1) {
+			r.left = this.join(l, x, r.left);
+			return this.balance(r);
+		}
+		x.left = l;
+		x.right = r;
+		x.update();
+		return x;
+	}
+
+	/**
+	 * public int join(int k, String i, BucketAVLTree t)
+	 *
+	 * joins t and the item (k, i) with the tree. precondition: keys(t) < k <
+	 * keys() or keys() < k < keys(t). t becomes empty. Returns the complexity of
+	 * the operation (|tree.rank - t.rank| + 1).
+	 */
+	public int join(int k, String i, BucketAVLTree t) {
+		int complexity = Math.abs(this.getHeight() - t.getHeight()) + 1;
+		Node other = t.root;
+		t.root = null;
+		boolean thisIsLeft = (this.root != null) ? this.root.keys[0] < k : (other == null || other.keys[0] > k);
+		Node x = new Node();
+		x.add(0, k, i);
+		this.root = thisIsLeft ? this.join(this.root, x, other) : this.join(other, x, this.root);
+		this.root = this.absorb(this.root, k);
+		return complexity;
+	}
+
+	/**
+	 * private Node absorb(Node node, int k)
+	 *
+	 * brings the page holding k, which join just linked with k as its only item,
+	 * back to MIN_KEYS items: with refill, like delete, if it has a subtree to
+	 * take from, otherwise from its parent, the neighbouring page then, whose
+	 * items it joins if both fit in one page. O(log n).
+	 */
+	private Node absorb(Node node, int k) {
+		if (k < node.keys[0]) {
+			node.left = this.absorb(node.left, k);
+			Node x = node.left;
+			if (x.left == null && x.right == null && x.n < MIN_KEYS) {
+				if (x.n + node.n <= MAX_KEYS) {
+					x.moveTo(node, 0, x.n, 0);
+					node.left = null;
+				} else {
+					node.moveTo(x, 0, MIN_KEYS - x.n, x.n);
+					x.update();
+				}
+			}
+		} else if (k > node.keys[node.n - 1]) {
+			node.right = this.absorb(node.right, k);
+			Node x = node.right;
+			if (x.left == null && x.right == null && x.n < MIN_KEYS) {
+				if (x.n + node.n <= MAX_KEYS) {
+					x.moveTo(node, 0, x.n, node.n);
+					node.right = null;
+				} else {
+					int m = MIN_KEYS - x.n;
+					node.moveTo(x, node.n - m, m, 0);
+					x.update();
+				}
+			}
+		} else if (node.n < MIN_KEYS) {
+			this.refill(node);
+		}
+		return this.balance(node);
+	}
+
+	/**
+	 * public BucketAVLTree[] split(int x)
+	 *
+	 * returns [t1, t2] with keys(t1) < x < keys(t2); an item with key x, if any,
+	 * is dropped. the tree becomes empty. O(log n): whole pages move, and only
+	 * the page holding x is cut.
+	 */
+	public BucketAVLTree[] split(int x) {
+		Node[] parts = this.split(this.root, x);
+		this.root = null;
+		BucketAVLTree smaller = new BucketAVLTree();
+		BucketAVLTree bigger = new BucketAVLTree();
+		smaller.root = parts[0];
+		bigger.root = parts[1];
+		return new BucketAVLTree[] { smaller, bigger };
+	}
+
+	// returns {smaller, bigger}
+	private Node[] split(Node node, int x) {
+		if (node == null) {
+			return new Node[2];
+		}
+		Node left = node.left;
+		Node right = node.right;
+		node.left = null;
+		node.right = null;
+		Node[] parts;
+		if (x < node.keys[0]) {
+			parts = this.split(left, x);
+			parts[1] = this.join(parts[1], node, right);
+		} else if (x > node.keys[node.n - 1]) {
+			parts = this.split(right, x);
+			parts[0] = this.join(left, node, parts[0]);
+		} else {
+			// cut the page: keys[0..lo) < x < keys[hi..n)
+			int j = Arrays.binarySearch(node.keys, 0, node.n, x);
+			int lo = (j >= 0) ? j : -j - 1;
+			int hi = (j >= 0) ? j + 1 : lo;
+			Node upper = new Node();
+			node.moveTo(upper, hi, node.n - hi, 0);
+			if (j >= 0) {
+				node.remove(j);
+			}
+			parts = new Node[2];
+			parts[0] = (node.n > 0) ? this.join(left, node, null) : left;
+			parts[1] = (upper.n > 0) ? this.join(null, upper, right) : right;
+		}
+		return parts;
+	}
+
+	/**
+	 * public int rank(int k)
+	 *
+	 * Returns the number of keys in the tree that are smaller than k, using the
+	 * subtree sizes (O(log n)).
+	 */
+	public int rank(int k) {
+		int cnt = 0;
+		Node node = this.root;
+		while (node != null) {
+			if (k < node.keys[0]) {
+				node = node.left;
+			} else {
+				if (k > node.keys[node.n - 1]) {
+					cnt += size(node.left) + node.n;
+					node = node.right;
+				} else {
+					int j = Arrays.binarySearch(node.keys, 0, node.n, k);
+					return cnt + size(node.left) + ((j >= 0) ? j : -j - 1);
+				}
+			}
+		}
+		return cnt;
+	}
+
+	/**
+	 * public int select(int i)
+	 *
+	 * Returns the i-th smallest key (counting from 0). O(log n). throws
+	 * IndexOutOfBoundsException if i is not in [0, size()).
+	 */
+	public int select(int i) {
+		if (i < 0 || i >= this.size()) {
+			throw new IndexOutOfBoundsException("no key at rank " + i);
+		}
+		Node node = this.root;
+		while (true) {
+			int l = size(node.left);
+			if (i < l) {
+				node = node.left;
+			} else if (i < l + node.n) {
+				return node.keys[i - l];
+			} else {
+				i -= l + node.n;
+				node = node.right;
+			}
+		}
+	}
+
+	/**
+	 * public String min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String min() {
+		return this.empty() ? null : first(this.root).vals[0];
+	}
+
+	/**
+	 * public String max()
+	 *
+	 * Returns the info of the item with the largest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String max() {
+		if (this.empty()) {
+			return null;
+		}
+		Node node = last(this.root);
+		return node.vals[node.n - 1];
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree, or an empty array
+	 * if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		int[] keysArray = new int[this.size()];
+		fill(this.root, keysArray, null, 0);
+		return keysArray;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		String[] infoArray = new String[this.size()];
+		fill(this.root, null, infoArray, 0);
+		return infoArray;
+	}
+
+	// writes node's subtree in order from position pos, returns the next position
+	private static int fill(Node node, int[] keys, String[] info, int pos) {
+		while (node != null) {
+			pos = fill(node.left, keys, info, pos);
+			if (keys != null) {
+				System.arraycopy(node.keys, 0, keys, pos, node.n);
+			} else {
+				System.arraycopy(node.vals, 0, info, pos, node.n);
+			}
+			pos += node.n;
+			node = node.right;
+		}
+		return pos;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of items in the tree.
+	 */
+	public int size() {
+		return size(this.root);
+	}
+
+	// returns the height of the tree (of pages), 0 if it's empty
+	public int getHeight() {
+		return (this.root == null) ? 0 : this.root.height - 1;
+	}
+
+	private static int height(Node node) {
+		return (node == null) ? 0 : node.height;
+	}
+
+	private static int size(Node node) {
+		return (node == null) ? 0 : node.size;
+	}
+
+	/**
+	 * class Node
+	 *
+	 * a page of n items sorted by key, in parallel arrays with room for one more
+	 * than MAX_KEYS (a page overflows before it splits). size counts the items
+	 * of the subtree, not its pages. a leaf has height 1.
+	 */
+	static final class Node {
+		final int[] keys = new int[MAX_KEYS + 1];
+		final String[] vals = new String[MAX_KEYS + 1];
+		int n;
+		Node left;
+		Node right;
+		int height;
+		int size;
+
+		void update() {
+			this.height = 1 + Math.max(height(this.left), height(this.right));
+			this.size = this.n + size(this.left) + size(this.right);
+		}
+
+		void add(int j, int k, String i) {
+			System.arraycopy(this.keys, j, this.keys, j + 1, this.n - j);
+			System.arraycopy(this.vals, j, this.vals, j + 1, this.n - j);
+			this.keys[j] = k;
+			this.vals[j] = i;
+			this.n++;
+		}
+
+		void remove(int j) {
+			this.n--;
+			System.arraycopy(this.keys, j + 1, this.keys, j, this.n - j);
+			System.arraycopy(this.vals, j + 1, this.vals, j, this.n - j);
+			this.vals[this.n] = null;
+		}
+
+		// moves items [from, from + m) of this page into dst at position at,
+		// shifting dst's items from at onwards up. sizes are left to the caller
+		void moveTo(Node dst, int from, int m, int at) {
+			System.arraycopy(dst.keys, at, dst.keys, at + m, dst.n - at);
+			System.arraycopy(dst.vals, at, dst.vals, at + m, dst.n - at);
+			System.arraycopy(this.keys, from, dst.keys, at, m);
+			System.arraycopy(this.vals, from, dst.vals, at, m);
+			dst.n += m;
+			System.arraycopy(this.keys, from + m, this.keys, from, this.n - from - m);
+			System.arraycopy(this.vals, from + m, this.vals, from, this.n - from - m);
+			Arrays.fill(this.vals, this.n - m, this.n, null);
+			this.n -= m;
+		}
+	}
+
+}
@@ -0,0 +1,345 @@
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ *
+ * ConcurrentAVLTree
+ *
+ * A thread-safe AVLTree. The keys are partitioned by range into stripes, each
+ * an independent AVLTree guarded by its own StampedLock, so writers on
+ * different ranges don't contend. With a single stripe it is a plain
+ * read-write-locked tree.
+ *
+ * search, min, max and size first run without locking under an optimistic
+ * read stamp and only take the read lock if a writer got in the way. Methods
+ * that span several stripes (min, max, size, keysToArray, infoToArray) see
+ * each stripe consistently, but not all stripes at one instant.
+ *
+ */
+public class ConcurrentAVLTree {
+
+	// no AVLTree of int keys is deeper than this, so a longer descent means a
+	// writer moved nodes under an optimistic reader
+	private static final int MAX_DEPTH = 64;
+
+	private final int[] bounds; // stripe i holds the keys in [bounds[i-1], bounds[i])
+	private final AVLTree[] stripes;
+	private final StampedLock[] locks;
+
+	/**
+	 * public ConcurrentAVLTree()
+	 *
+	 * creates an empty tree with a single stripe
+	 */
+	public ConcurrentAVLTree() {
+		this(new int[0]);
+	}
+
+	/**
+	 * public ConcurrentAVLTree(int stripes)
+	 *
+	 * creates an empty tree whose stripes split the int key range evenly
+	 */
+	public ConcurrentAVLTree(int stripes) {
+		this(evenBounds(stripes));
+	}
+
+	/**
+	 * public ConcurrentAVLTree(int[] bounds)
+	 *
+	 * creates an empty tree with bounds.length + 1 stripes: stripe i holds the
+	 * keys k with bounds[i-1] <= k < bounds[i]. bounds must be strictly
+	 * increasing.
+	 */
+	public ConcurrentAVLTree(int[] bounds) {
+		for (int i = 1; i < bounds.length; i++) {
+			if (bounds[i - 1] >= bounds[i]) {
+				throw new IllegalArgumentException("bounds must be strictly increasing");
+			}
+		}
+		this.bounds = bounds.clone();
+		this.stripes = new AVLTree[bounds.length + 1];
+		this.locks = new StampedLock[bounds.length + 1];
+		for (int i = 0; i < this.stripes.length; i++) {
+			this.stripes[i] = new AVLTree();
+			this.locks[i] = new StampedLock();
+		}
+	}
+
+	private static int[] evenBounds(int stripes) {
+		if (stripes < 1) {
+			throw new IllegalArgumentException("stripes must be positive");
+		}
+		int[] bounds = new int[stripes - 1];
+		long width = (1L << 32) / stripes;
+		for (int i = 0; i < bounds.length; i++) {
+			bounds[i] = (int) (Integer.MIN_VALUE + width * (i + 1));
+		}
+		return bounds;
+	}
+
+	// the index of the stripe holding k
+	private int stripeOf(int k) {
+		int i = Arrays.binarySearch(this.bounds, k);
+		return (i >= 0) ? i + 1 : -i - 1;
+	}
+
+	/**
+	 * public String search(int k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree otherwise,
+	 * returns null
+	 */
+	public String search(int k) {
+		int i = this.stripeOf(k);
+		AVLTree tree = this.stripes[i];
+		StampedLock lock = this.locks[i];
+
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				String info = optimisticSearch(tree, k);
+				if (lock.validate(stamp)) {
+					return info;
+				}
+			} catch (RuntimeException e) {
+				// saw a half-done write; retry under the lock
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return optimisticSearch(tree, k);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	// a descent that may race with a writer: bounded, and only trusted if the
+	// stamp validates afterwards. like the other readers here it only follows
+	// getters, since AVLTree.empty() may write to the tree.
+	private static String optimisticSearch(AVLTree tree, int k) {
+		AVLTree.IAVLNode node = tree.getRoot();
+		for (int depth = 0; depth < MAX_DEPTH && node != null && node.isRealNode(); depth++) {
+			int key = node.getKey();
+			if (key == k) {
+				return node.getValue();
+			}
+			node = (k < key) ? node.getLeft() : node.getRight();
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 *
+	 * inserts an item with key k and info i to the tree. returns the number of
+	 * rebalancing operations, or -1 if an item with key k already exists.
+	 */
+	public int insert(int k, String i) {
+		int s = this.stripeOf(k);
+		StampedLock lock = this.locks[s];
+		long stamp = lock.writeLock();
+		try {
+			return this.stripes[s].insert(k, i);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * public int delete(int k)
+	 *
+	 * deletes an item with key k from the tree if it is there. returns the number
+	 * of rebalancing operations, or -1 if an item with key k was not found.
+	 */
+	public int delete(int k) {
+		int s = this.stripeOf(k);
+		StampedLock lock = this.locks[s];
+		long stamp = lock.writeLock();
+		try {
+			return this.stripes[s].delete(k);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * public String min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String min() {
+		for (int i = 0; i < this.stripes.length; i++) {
+			String info = this.end(i, true);
+			if (info != EMPTY) {
+				return info;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * public String max()
+	 *
+	 * Returns the info of the item with the largest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String max() {
+		for (int i = this.stripes.length - 1; i >= 0; i--) {
+			String info = this.end(i, false);
+			if (info != EMPTY) {
+				return info;
+			}
+		}
+		return null;
+	}
+
+	// returned by end for an empty stripe (compared by identity)
+	private static final String EMPTY = new String();
+
+	// the min or max info of stripe i, or EMPTY, read optimistically if possible
+	private String end(int i, boolean min) {
+		AVLTree tree = this.stripes[i];
+		StampedLock lock = this.locks[i];
+
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				String info = optimisticEnd(tree, min);
+				if (lock.validate(stamp)) {
+					return info;
+				}
+			} catch (RuntimeException e) {
+				// saw a half-done write; retry under the lock
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return optimisticEnd(tree, min);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	private static String optimisticEnd(AVLTree tree, boolean min) {
+		AVLTree.IAVLNode node = tree.getRoot();
+		if (node == null || !node.isRealNode()) {
+			return EMPTY;
+		}
+		for (int depth = 0; depth < MAX_DEPTH; depth++) {
+			AVLTree.IAVLNode next = min ? node.getLeft() : node.getRight();
+			if (!next.isRealNode()) {
+				break;
+			}
+			node = next;
+		}
+		return node.getValue();
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of items in the tree.
+	 */
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < this.stripes.length; i++) {
+			size += this.size(i);
+		}
+		return size;
+	}
+
+	// the size of stripe i, read optimistically if possible
+	private int size(int i) {
+		AVLTree tree = this.stripes[i];
+		StampedLock lock = this.locks[i];
+
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				int size = optimisticSize(tree);
+				if (lock.validate(stamp)) {
+					return size;
+				}
+			} catch (RuntimeException e) {
+				// saw a half-done write; retry under the lock
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return optimisticSize(tree);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	private static int optimisticSize(AVLTree tree) {
+		AVLTree.IAVLNode root = tree.getRoot();
+		return (root == null) ? 0 : root.getSize();
+	}
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return this.size() == 0;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree, or an empty
+	 * array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		int[][] parts = new int[this.stripes.length][];
+		int total = 0;
+		for (int i = 0; i < this.stripes.length; i++) {
+			long stamp = this.locks[i].readLock();
+			try {
+				parts[i] = this.stripes[i].keysToArray();
+			} finally {
+				this.locks[i].unlockRead(stamp);
+			}
+			total += parts[i].length;
+		}
+		int[] keys = new int[total];
+		int pos = 0;
+		for (int[] part : parts) {
+			System.arraycopy(part, 0, keys, pos, part.length);
+			pos += part.length;
+		}
+		return keys;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		String[][] parts = new String[this.stripes.length][];
+		int total = 0;
+		for (int i = 0; i < this.stripes.length; i++) {
+			long stamp = this.locks[i].readLock();
+			try {
+				parts[i] = this.stripes[i].infoToArray();
+			} finally {
+				this.locks[i].unlockRead(stamp);
+			}
+			total += parts[i].length;
+		}
+		String[] info = new String[total];
+		int pos = 0;
+		for (String[] part : parts) {
+			System.arraycopy(part, 0, info, pos, part.length);
+			pos += part.length;
+		}
+		return info;
+	}
+
+}
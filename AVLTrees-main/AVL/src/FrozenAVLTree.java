@@ -0,0 +1,232 @@
+import java.util.OptionalInt;
+
+/**
+ *
+ * FrozenAVLTree
+ *
+ * An immutable snapshot of an AVLTree (see AVLTree.freeze) laid out for
+ * searching rather than updating. The keys are kept twice: in key order, with
+ * the info in a parallel array, for select and range scans, and in Eytzinger
+ * order (the BFS order of a complete binary search tree, root at index 1 and
+ * the children of i at 2i and 2i + 1) for descents. A descent reads one int
+ * per level from an array whose top levels share a handful of cache lines,
+ * and picks the next index arithmetically, without a branch on the
+ * comparison.
+ *
+ * Every query starts from lowerBound, the rank of the first key >= k, so
+ * search, floor, ceiling, rank and range scans cost one descent each.
+ *
+ */
+public class FrozenAVLTree {
+
+	private final int n;
+	private final int[] keys; // sorted
+	private final String[] info; // info[r] belongs to keys[r]
+	private final int[] eytzinger; // keys in Eytzinger order, from index 1
+	private final int[] rankOf; // the rank of eytzinger[i]
+
+	// keys must be strictly increasing; the arrays are kept, not copied
+	FrozenAVLTree(int[] keys, String[] info) {
+		this.n = keys.length;
+		this.keys = keys;
+		this.info = info;
+		this.eytzinger = new int[this.n + 1];
+		this.rankOf = new int[this.n + 1];
+		this.layout(1, 0);
+	}
+
+	// lays out the subtree at Eytzinger index i from rank r on, returns the next
+	// rank
+	private int layout(int i, int r) {
+		if (i > this.n) {
+			return r;
+		}
+		r = this.layout(2 * i, r);
+		this.eytzinger[i] = this.keys[r];
+		this.rankOf[i] = r;
+		return this.layout(2 * i + 1, r + 1);
+	}
+
+	/**
+	 * private int lowerBound(int k)
+	 *
+	 * returns the rank of the smallest key >= k, or size() if there is none.
+	 * the descent goes right exactly when eytzinger[i] < k, taken from the sign
+	 * of the difference; at the end, the index of the last left turn is in i's
+	 * bits above its trailing ones.
+	 */
+	private int lowerBound(int k) {
+		int[] e = this.eytzinger;
+		int i = 1;
+		while (i <= this.n) {
+			i = 2 * i + (int) (((long) e[i] - k) >>> 63);
+		}
+		i >>= Integer.numberOfTrailingZeros(~i) + 1;
+		return (i == 0) ? this.n : this.rankOf[i];
+	}
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return this.n == 0;
+	}
+
+	/**
+	 * public String search(int k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree otherwise,
+	 * returns null
+	 */
+	public String search(int k) {
+		int r = this.lowerBound(k);
+		return (r < this.n && this.keys[r] == k) ? this.info[r] : null;
+	}
+
+	/**
+	 * public OptionalInt floor(int k)
+	 *
+	 * returns the largest key <= k, or an empty OptionalInt if there is none
+	 */
+	public OptionalInt floor(int k) {
+		int r = this.lowerBound(k);
+		if (r < this.n && this.keys[r] == k) {
+			return OptionalInt.of(k);
+		}
+		return (r > 0) ? OptionalInt.of(this.keys[r - 1]) : OptionalInt.empty();
+	}
+
+	/**
+	 * public OptionalInt ceiling(int k)
+	 *
+	 * returns the smallest key >= k, or an empty OptionalInt if there is none
+	 */
+	public OptionalInt ceiling(int k) {
+		int r = this.lowerBound(k);
+		return (r < this.n) ? OptionalInt.of(this.keys[r]) : OptionalInt.empty();
+	}
+
+	/**
+	 * public int rank(int k)
+	 *
+	 * Returns the number of keys in the tree that are smaller than k. If k is in
+	 * the tree, keysToArray()[rank(k)] == k.
+	 */
+	public int rank(int k) {
+		return this.lowerBound(k);
+	}
+
+	/**
+	 * public int select(int i)
+	 *
+	 * Returns the i-th smallest key (counting from 0). throws
+	 * IndexOutOfBoundsException if i is not in [0, size()).
+	 */
+	public int select(int i) {
+		if (i < 0 || i >= this.n) {
+			throw new IndexOutOfBoundsException("no key at rank " + i);
+		}
+		return this.keys[i];
+	}
+
+	/**
+	 * public int countRange(int lo, int hi)
+	 *
+	 * Returns the number of keys k in the tree with lo <= k <= hi.
+	 */
+	public int countRange(int lo, int hi) {
+		if (lo > hi) {
+			return 0;
+		}
+		int end = (hi == Integer.MAX_VALUE) ? this.n : this.lowerBound(hi + 1);
+		return end - this.lowerBound(lo);
+	}
+
+	/**
+	 * public void forEachInRange(int lo, int hi, AVLTree.ItemConsumer consumer)
+	 *
+	 * Calls consumer with the key and info of every item with lo <= key <= hi, in
+	 * key order: one descent, then a sequential scan of the sorted arrays.
+	 */
+	public void forEachInRange(int lo, int hi, AVLTree.ItemConsumer consumer) {
+		if (lo > hi) {
+			return;
+		}
+		for (int r = this.lowerBound(lo); r < this.n && this.keys[r] <= hi; r++) {
+			consumer.accept(this.keys[r], this.info[r]);
+		}
+	}
+
+	/**
+	 * public void forEach(AVLTree.ItemConsumer consumer)
+	 *
+	 * Calls consumer with every item in key order.
+	 */
+	public void forEach(AVLTree.ItemConsumer consumer) {
+		for (int r = 0; r < this.n; r++) {
+			consumer.accept(this.keys[r], this.info[r]);
+		}
+	}
+
+	/**
+	 * public String min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String min() {
+		return this.empty() ? null : this.info[0];
+	}
+
+	/**
+	 * public String max()
+	 *
+	 * Returns the info of the item with the largest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String max() {
+		return this.empty() ? null : this.info[this.n - 1];
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree, or an empty array
+	 * if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		return this.keys.clone();
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		return this.info.clone();
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of items in the tree.
+	 */
+	public int size() {
+		return this.n;
+	}
+
+	/**
+	 * public AVLTree thaw()
+	 *
+	 * returns a new mutable AVLTree with the items of this tree, built in O(n)
+	 * with AVLTree.fromSorted. this tree is not changed.
+	 */
+	public AVLTree thaw() {
+		return AVLTree.fromSorted(this.keys, this.info);
+	}
+
+}
@@ -0,0 +1,574 @@
+import java.util.Comparator;
+import java.util.function.IntFunction;
+
+/**
+ *
+ * GenericAVLTree
+ *
+ * An AVL tree with distinct keys of any type, ordered by a Comparator (or by
+ * the keys' natural ordering), and values of any type. There is no virtual
+ * leaf: missing children are null, so every key value can be stored.
+ *
+ * It has AVLTree's original operations (search, insert, delete, min, max,
+ * keysToArray, infoToArray, size, getHeight, split and join) with the same
+ * return values, except that join takes the pivot's key and value instead of a
+ * node. The later AVLTree additions (rank and range queries, cursors, bulk and
+ * set operations, serialization) are not carried over.
+ *
+ * For int and long keys use IntObjAVLTree and LongObjAVLTree, which compare
+ * primitive keys without boxing.
+ *
+ */
+public class GenericAVLTree<K, V> {
+
+	private final Comparator<? super K> comparator;
+	private Node<K, V> root = null;
+	private Node<K, V> min = null;
+	private Node<K, V> max = null;
+
+	/**
+	 * public GenericAVLTree()
+	 *
+	 * creates an empty tree ordered by the natural ordering of the keys, which
+	 * must implement Comparable
+	 */
+	@SuppressWarnings("unchecked")
+	public GenericAVLTree() {
+		this((a, b) -> ((Comparable<? super K>) a).compareTo(b));
+	}
+
+	public GenericAVLTree(Comparator<? super K> comparator) {
+		if (comparator == null) {
+			throw new NullPointerException("comparator");
+		}
+		this.comparator = comparator;
+	}
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the tree is empty
+	 *
+	 */
+	public boolean empty() {
+		return this.root == null;
+	}
+
+	/**
+	 * public V search(K k)
+	 *
+	 * returns the value of an item with key k if it exists in the tree otherwise,
+	 * returns null
+	 */
+	public V search(K k) {
+		Node<K, V> node = this.root;
+		while (node != null) {
+			int cmp = this.comparator.compare(k, node.key);
+			if (cmp == 0) {
+				return node.value;
+			}
+			node = (cmp < 0) ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(K k, V v)
+	 *
+	 * inserts an item with key k and value v to the tree. returns the number of
+	 * rebalancing operations (counted as in AVLTree.insert), or -1 if an item with
+	 * key k already exists in the tree.
+	 */
+	public int insert(K k, V v) {
+		if (this.root == null) {
+			this.root = new Node<K, V>(k, v, null);
+			this.min = this.root;
+			this.max = this.root;
+			return 0;
+		}
+
+		Node<K, V> position = this.root;
+		int cmp;
+		while (true) {
+			cmp = this.comparator.compare(k, position.key);
+			if (cmp == 0) { // key already exists
+				return -1;
+			}
+			Node<K, V> next = (cmp < 0) ? position.left : position.right;
+			if (next == null) {
+				break;
+			}
+			position = next;
+		}
+
+		Node<K, V> node = new Node<K, V>(k, v, position);
+		if (cmp < 0) {
+			position.left = node;
+			if (position == this.min) {
+				this.min = node;
+			}
+		} else {
+			position.right = node;
+			if (position == this.max) {
+				this.max = node;
+			}
+		}
+		return this.fixInsert(position);
+	}
+
+	// walks up from the parent of a new leaf, fixing sizes on the whole path and
+	// heights only until a subtree's height stops changing
+	private int fixInsert(Node<K, V> node) {
+		int cnt = 0;
+		boolean balancing = true;
+		while (node != null) {
+			if (!balancing) {
+				node.size++;
+				node = node.parent;
+				continue;
+			}
+			int oldHeight = node.height;
+			int balance = height(node.left) - height(node.right);
+			if (balance > 1 || balance < -1) {
+				cnt += isDoubleRotation(node) ? 5 : 2;
+				node = this.rebalanceNode(node);
+				balancing = false; // a rotation after an insertion is terminal
+			} else {
+				node.update();
+				if (node.height == oldHeight) {
+					balancing = false;
+				} else {
+					cnt++; // promotion
+				}
+			}
+			node = node.parent;
+		}
+		return cnt;
+	}
+
+	/**
+	 * public int delete(K k)
+	 *
+	 * deletes an item with key k from the tree, if it is there. returns the number
+	 * of rebalancing operations, or -1 if an item with key k was not found in the
+	 * tree.
+	 */
+	public int delete(K k) {
+		Node<K, V> node = this.root;
+		while (node != null) {
+			int cmp = this.comparator.compare(k, node.key);
+			if (cmp == 0) {
+				break;
+			}
+			node = (cmp < 0) ? node.left : node.right;
+		}
+		if (node == null) {
+			return -1;
+		}
+
+		if (node == this.min) {
+			this.min = successor(node);
+		}
+		if (node == this.max) {
+			this.max = predecessor(node);
+		}
+
+		if (node.left != null && node.right != null) {
+			// move the successor's item into node, then unlink the successor instead
+			Node<K, V> successor = node.right;
+			while (successor.left != null) {
+				successor = successor.left;
+			}
+			node.key = successor.key;
+			node.value = successor.value;
+			if (this.max == successor) {
+				this.max = node;
+			}
+			node = successor;
+		}
+
+		Node<K, V> child = (node.left != null) ? node.left : node.right;
+		Node<K, V> p = node.parent;
+		if (child != null) {
+			child.parent = p;
+		}
+		this.replaceChild(p, node, child);
+
+		int cnt = 0;
+		while (p != null) {
+			int oldHeight = p.height;
+			int balance = height(p.left) - height(p.right);
+			if (balance > 1 || balance < -1) {
+				cnt += isDoubleRotation(p) ? 6 : 3;
+				p = this.rebalanceNode(p);
+			} else {
+				p.update();
+				if (p.height != oldHeight) {
+					cnt++; // demotion
+				}
+			}
+			p = p.parent;
+		}
+		return cnt;
+	}
+
+	// restores the balance of node (whose children are balanced) with a single or
+	// double rotation, and returns the new root of its subtree
+	private Node<K, V> rebalanceNode(Node<K, V> node) {
+		if (height(node.left) > height(node.right)) {
+			if (height(node.left.left) < height(node.left.right)) {
+				this.rotateLeft(node.left);
+			}
+			return this.rotateRight(node);
+		}
+		if (height(node.right.right) < height(node.right.left)) {
+			this.rotateRight(node.right);
+		}
+		return this.rotateLeft(node);
+	}
+
+	private static boolean isDoubleRotation(Node<?, ?> node) {
+		if (height(node.left) > height(node.right)) {
+			return height(node.left.left) < height(node.left.right);
+		}
+		return height(node.right.right) < height(node.right.left);
+	}
+
+	private Node<K, V> rotateRight(Node<K, V> node) {
+		Node<K, V> leftNode = node.left;
+		Node<K, V> p = node.parent;
+
+		node.left = leftNode.right;
+		if (node.left != null) {
+			node.left.parent = node;
+		}
+		leftNode.right = node;
+		node.parent = leftNode;
+		leftNode.parent = p;
+		this.replaceChild(p, node, leftNode);
+
+		node.update();
+		leftNode.update();
+		return leftNode;
+	}
+
+	private Node<K, V> rotateLeft(Node<K, V> node) {
+		Node<K, V> rightNode = node.right;
+		Node<K, V> p = node.parent;
+
+		node.right = rightNode.left;
+		if (node.right != null) {
+			node.right.parent = node;
+		}
+		rightNode.left = node;
+		node.parent = rightNode;
+		rightNode.parent = p;
+		this.replaceChild(p, node, rightNode);
+
+		node.update();
+		rightNode.update();
+		return rightNode;
+	}
+
+	private void replaceChild(Node<K, V> p, Node<K, V> oldChild, Node<K, V> newChild) {
+		if (p == null) {
+			this.root = newChild;
+		} else if (p.left == oldChild) {
+			p.left = newChild;
+		} else {
+			p.right = newChild;
+		}
+	}
+
+	private static <K, V> Node<K, V> successor(Node<K, V> node) {
+		if (node.right != null) {
+			node = node.right;
+			while (node.left != null) {
+				node = node.left;
+			}
+			return node;
+		}
+		while (node.parent != null && node.parent.right == node) {
+			node = node.parent;
+		}
+		return node.parent;
+	}
+
+	private static <K, V> Node<K, V> predecessor(Node<K, V> node) {
+		if (node.left != null) {
+			node = node.left;
+			while (node.right != null) {
+				node = node.right;
+			}
+			return node;
+		}
+		while (node.parent != null && node.parent.left == node) {
+			node = node.parent;
+		}
+		return node.parent;
+	}
+
+	/**
+	 * public GenericAVLTree<K, V>[] split(K x)
+	 *
+	 * splits the tree into 2 trees according to the key x. Returns an array [t1,
+	 * t2] with two trees ordered like this one, keys(t1) < x < keys(t2). the item
+	 * with key x, if any, is dropped and this tree is left empty. as in
+	 * AVLTree.split, the nodes on the path to x are re-used as join pivots, so
+	 * the work is O(log n).
+	 */
+	public GenericAVLTree<K, V>[] split(K x) {
+		@SuppressWarnings("unchecked")
+		GenericAVLTree<K, V>[] result = (GenericAVLTree<K, V>[]) new GenericAVLTree<?, ?>[2];
+		result[0] = new GenericAVLTree<K, V>(this.comparator);
+		result[1] = new GenericAVLTree<K, V>(this.comparator);
+		Node<K, V> node = this.root;
+		if (node == null) {
+			return result;
+		}
+		while (true) { // down to the node with key x, or the one x would hang from
+			int cmp = this.comparator.compare(x, node.key);
+			Node<K, V> next = (cmp < 0) ? node.left : (cmp > 0) ? node.right : null;
+			if (next == null) {
+				break;
+			}
+			node = next;
+		}
+
+		Node<K, V> smaller = null; // root of the keys smaller than x
+		Node<K, V> bigger = null; // root of the keys bigger than x
+		Node<K, V> pNode = node;
+		if (this.comparator.compare(x, node.key) == 0) {
+			smaller = detach(node.left);
+			bigger = detach(node.right);
+			pNode = node.parent;
+		}
+		while (pNode != null) {
+			Node<K, V> next = pNode.parent;
+			if (this.comparator.compare(pNode.key, x) < 0) {
+				smaller = this.joinNodes(detach(pNode.left), pNode, smaller);
+			} else {
+				bigger = this.joinNodes(bigger, pNode, detach(pNode.right));
+			}
+			pNode = next;
+		}
+
+		result[0].setTree(smaller);
+		result[1].setTree(bigger);
+		this.setTree(null);
+		return result;
+	}
+
+	/**
+	 * public int join(K k, V v, GenericAVLTree<K, V> t)
+	 *
+	 * joins t and an item with key k and value v with the tree, leaving t empty.
+	 * Returns the complexity of the operation (|tree.rank - t.rank| + 1), as
+	 * AVLTree.join. precondition: keys(t) < k < keys() or keys() < k < keys(t),
+	 * and t is ordered like this tree.
+	 */
+	public int join(K k, V v, GenericAVLTree<K, V> t) {
+		int valtoreturn = Math.abs(this.getHeight() - t.getHeight()) + 1;
+
+		boolean thisIsLeft;
+		if (!this.empty()) {
+			thisIsLeft = this.comparator.compare(this.root.key, k) < 0;
+		} else {
+			thisIsLeft = t.empty() || this.comparator.compare(t.root.key, k) > 0;
+		}
+		GenericAVLTree<K, V> ltree = thisIsLeft ? this : t;
+		GenericAVLTree<K, V> rtree = thisIsLeft ? t : this;
+		Node<K, V> x = new Node<K, V>(k, v, null);
+		Node<K, V> newMin = ltree.empty() ? x : ltree.min;
+		Node<K, V> newMax = rtree.empty() ? x : rtree.max;
+
+		Node<K, V> joined = this.joinNodes(ltree.root, x, rtree.root);
+		if (t != this) {
+			t.setTree(null);
+		}
+		this.root = joined;
+		this.min = newMin;
+		this.max = newMax;
+		return valtoreturn;
+	}
+
+	/**
+	 * private Node<K, V> joinNodes(Node<K, V> l, Node<K, V> x, Node<K, V> r)
+	 *
+	 * joins the detached subtrees l and r (either may be null) with the detached
+	 * node x, where keys(l) < x < keys(r), and returns the root of the result. x
+	 * is hung on the spine of the taller tree at the height of the shorter one
+	 * and rebalanced upward, so heights change in O(|rank(l) - rank(r)| + 1)
+	 * steps; sizes are fixed on the whole spine.
+	 */
+	private Node<K, V> joinNodes(Node<K, V> l, Node<K, V> x, Node<K, V> r) {
+		int hl = height(l);
+		int hr = height(r);
+		Node<K, V> parent = null;
+		if (hl > hr + 1) {
+			while (height(l) > hr + 1) { // down the right spine of l
+				parent = l;
+				l = l.right;
+			}
+		} else if (hr > hl + 1) {
+			while (height(r) > hl + 1) { // down the left spine of r
+				parent = r;
+				r = r.left;
+			}
+		}
+		x.left = l;
+		x.right = r;
+		if (l != null) {
+			l.parent = x;
+		}
+		if (r != null) {
+			r.parent = x;
+		}
+		x.parent = parent;
+		x.update();
+		if (parent == null) {
+			return x;
+		}
+		if (hl > hr) {
+			parent.right = x;
+		} else {
+			parent.left = x;
+		}
+
+		Node<K, V> top = x;
+		for (Node<K, V> p = parent; p != null; p = p.parent) {
+			int balance = height(p.left) - height(p.right);
+			if (balance > 1 || balance < -1) {
+				p = this.rebalanceNode(p);
+			} else {
+				p.update();
+			}
+			top = p;
+		}
+		return top;
+	}
+
+	private static <K, V> Node<K, V> detach(Node<K, V> node) {
+		if (node != null) {
+			node.parent = null;
+		}
+		return node;
+	}
+
+	// makes the detached subtree root (or nothing, if null) this tree's content
+	private void setTree(Node<K, V> root) {
+		this.root = root;
+		this.min = root;
+		this.max = root;
+		if (root != null) {
+			while (this.min.left != null) {
+				this.min = this.min.left;
+			}
+			while (this.max.right != null) {
+				this.max = this.max.right;
+			}
+		}
+	}
+
+	/**
+	 * public V min()
+	 *
+	 * Returns the value of the item with the smallest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public V min() {
+		return this.empty() ? null : this.min.value;
+	}
+
+	/**
+	 * public V max()
+	 *
+	 * Returns the value of the item with the largest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public V max() {
+		return this.empty() ? null : this.max.value;
+	}
+
+	/**
+	 * public K[] keysToArray(IntFunction<K[]> generator)
+	 *
+	 * Returns a sorted array which contains all keys in the tree, or an empty array
+	 * if the tree is empty. generator allocates the array for a given length, e.g.
+	 * String[]::new.
+	 */
+	public K[] keysToArray(IntFunction<K[]> generator) {
+		K[] keysArray = generator.apply(this.size());
+		int i = 0;
+		for (Node<K, V> node = this.min; node != null; node = successor(node)) {
+			keysArray[i++] = node.key;
+		}
+		return keysArray;
+	}
+
+	/**
+	 * public V[] infoToArray(IntFunction<V[]> generator)
+	 *
+	 * Returns an array which contains all values in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty. generator allocates
+	 * the array for a given length.
+	 */
+	public V[] infoToArray(IntFunction<V[]> generator) {
+		V[] infoArray = generator.apply(this.size());
+		int i = 0;
+		for (Node<K, V> node = this.min; node != null; node = successor(node)) {
+			infoArray[i++] = node.value;
+		}
+		return infoArray;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of nodes in the tree.
+	 */
+	public int size() {
+		return (this.root == null) ? 0 : this.root.size;
+	}
+
+	// returns the height of the tree, 0 if it's empty
+	public int getHeight() {
+		return (this.root == null) ? 0 : this.root.height - 1;
+	}
+
+	private static int height(Node<?, ?> node) {
+		return (node == null) ? 0 : node.height;
+	}
+
+	private static int size(Node<?, ?> node) {
+		return (node == null) ? 0 : node.size;
+	}
+
+	/**
+	 * class Node
+	 *
+	 * height counts the nodes on the longest path down to a leaf, so a leaf has
+	 * height 1 and a missing (null) child has height 0.
+	 */
+	static final class Node<K, V> {
+		K key;
+		V value;
+		Node<K, V> left;
+		Node<K, V> right;
+		Node<K, V> parent;
+		int height = 1;
+		int size = 1;
+
+		Node(K key, V value, Node<K, V> parent) {
+			this.key = key;
+			this.value = value;
+			this.parent = parent;
+		}
+
+		void update() {
+			this.height = 1 + Math.max(height(this.left), height(this.right));
+			this.size = 1 + size(this.left) + size(this.right);
+		}
+	}
+
+}
@@ -0,0 +1,542 @@
+import java.util.function.IntFunction;
+
+/**
+ *
+ * IntObjAVLTree
+ *
+ * GenericAVLTree specialized by hand for int keys: keys are stored and
+ * compared as primitives, so search, insert and delete never box. Every int
+ * value, including -1, is a valid key. It has the same operations as
+ * GenericAVLTree.
+ *
+ */
+public class IntObjAVLTree<V> {
+
+	private Node<V> root = null;
+	private Node<V> min = null;
+	private Node<V> max = null;
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the tree is empty
+	 *
+	 */
+	public boolean empty() {
+		return this.root == null;
+	}
+
+	/**
+	 * public V search(int k)
+	 *
+	 * returns the value of an item with key k if it exists in the tree otherwise,
+	 * returns null
+	 */
+	public V search(int k) {
+		Node<V> node = this.root;
+		while (node != null) {
+			if (k == node.key) {
+				return node.value;
+			}
+			node = (k < node.key) ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(int k, V v)
+	 *
+	 * inserts an item with key k and value v to the tree. returns the number of
+	 * rebalancing operations (counted as in AVLTree.insert), or -1 if an item with
+	 * key k already exists in the tree.
+	 */
+	public int insert(int k, V v) {
+		if (this.root == null) {
+			this.root = new Node<V>(k, v, null);
+			this.min = this.root;
+			this.max = this.root;
+			return 0;
+		}
+
+		Node<V> position = this.root;
+		int cmp;
+		while (true) {
+			cmp = Integer.compare(k, position.key);
+			if (cmp == 0) { // key already exists
+				return -1;
+			}
+			Node<V> next = (cmp < 0) ? position.left : position.right;
+			if (next == null) {
+				break;
+			}
+			position = next;
+		}
+
+		Node<V> node = new Node<V>(k, v, position);
+		if (cmp < 0) {
+			position.left = node;
+			if (position == this.min) {
+				this.min = node;
+			}
+		} else {
+			position.right = node;
+			if (position == this.max) {
+				this.max = node;
+			}
+		}
+		return this.fixInsert(position);
+	}
+
+	// walks up from the parent of a new leaf, fixing sizes on the whole path and
+	// heights only until a subtree's height stops changing
+	private int fixInsert(Node<V> node) {
+		int cnt = 0;
+		boolean balancing = true;
+		while (node != null) {
+			if (!balancing) {
+				node.size++;
+				node = node.parent;
+				continue;
+			}
+			int oldHeight = node.height;
+			int balance = height(node.left) - height(node.right);
+			if (balance > 1 || balance < -1) {
+				cnt += isDoubleRotation(node) ? 5 : 2;
+				node = this.rebalanceNode(node);
+				balancing = false; // a rotation after an insertion is terminal
+			} else {
+				node.update();
+				if (node.height == oldHeight) {
+					balancing = false;
+				} else {
+					cnt++; // promotion
+				}
+			}
+			node = node.parent;
+		}
+		return cnt;
+	}
+
+	/**
+	 * public int delete(int k)
+	 *
+	 * deletes an item with key k from the tree, if it is there. returns the number
+	 * of rebalancing operations, or -1 if an item with key k was not found in the
+	 * tree.
+	 */
+	public int delete(int k) {
+		Node<V> node = this.root;
+		while (node != null) {
+			int cmp = Integer.compare(k, node.key);
+			if (cmp == 0) {
+				break;
+			}
+			node = (cmp < 0) ? node.left : node.right;
+		}
+		if (node == null) {
+			return -1;
+		}
+
+		if (node == this.min) {
+			this.min = successor(node);
+		}
+		if (node == this.max) {
+			this.max = predecessor(node);
+		}
+
+		if (node.left != null && node.right != null) {
+			// move the successor's item into node, then unlink the successor instead
+			Node<V> successor = node.right;
+			while (successor.left != null) {
+				successor = successor.left;
+			}
+			node.key = successor.key;
+			node.value = successor.value;
+			if (this.max == successor) {
+				this.max = node;
+			}
+			node = successor;
+		}
+
+		Node<V> child = (node.left != null) ? node.left : node.right;
+		Node<V> p = node.parent;
+		if (child != null) {
+			child.parent = p;
+		}
+		this.replaceChild(p, node, child);
+
+		int cnt = 0;
+		while (p != null) {
+			int oldHeight = p.height;
+			int balance = height(p.left) - height(p.right);
+			if (balance > 1 || balance < -1) {
+				cnt += isDoubleRotation(p) ? 6 : 3;
+				p = this.rebalanceNode(p);
+			} else {
+				p.update();
+				if (p.height != oldHeight) {
+					cnt++; // demotion
+				}
+			}
+			p = p.parent;
+		}
+		return cnt;
+	}
+
+	// restores the balance of node (whose children are balanced) with a single or
+	// double rotation, and returns the new root of its subtree
+	private Node<V> rebalanceNode(Node<V> node) {
+		if (height(node.left) > height(node.right)) {
+			if (height(node.left.left) < height(node.left.right)) {
+				this.rotateLeft(node.left);
+			}
+			return this.rotateRight(node);
+		}
+		if (height(node.right.right) < height(node.right.left)) {
+			this.rotateRight(node.right);
+		}
+		return this.rotateLeft(node);
+	}
+
+	private static boolean isDoubleRotation(Node<?> node) {
+		if (height(node.left) > height(node.right)) {
+			return height(node.left.left) < height(node.left.right);
+		}
+		return height(node.right.right) < height(node.right.left);
+	}
+
+	private Node<V> rotateRight(Node<V> node) {
+		Node<V> leftNode = node.left;
+		Node<V> p = node.parent;
+
+		node.left = leftNode.right;
+		if (node.left != null) {
+			node.left.parent = node;
+		}
+		leftNode.right = node;
+		node.parent = leftNode;
+		leftNode.parent = p;
+		this.replaceChild(p, node, leftNode);
+
+		node.update();
+		leftNode.update();
+		return leftNode;
+	}
+
+	private Node<V> rotateLeft(Node<V> node) {
+		Node<V> rightNode = node.right;
+		Node<V> p = node.parent;
+
+		node.right = rightNode.left;
+		if (node.right != null) {
+			node.right.parent = node;
+		}
+		rightNode.left = node;
+		node.parent = rightNode;
+		rightNode.parent = p;
+		this.replaceChild(p, node, rightNode);
+
+		node.update();
+		rightNode.update();
+		return rightNode;
+	}
+
+	private void replaceChild(Node<V> p, Node<V> oldChild, Node<V> newChild) {
+		if (p == null) {
+			this.root = newChild;
+		} else if (p.left == oldChild) {
+			p.left = newChild;
+		} else {
+			p.right = newChild;
+		}
+	}
+
+	private static <V> Node<V> successor(Node<V> node) {
+		if (node.right != null) {
+			node = node.right;
+			while (node.left != null) {
+				node = node.left;
+			}
+			return node;
+		}
+		while (node.parent != null && node.parent.right == node) {
+			node = node.parent;
+		}
+		return node.parent;
+	}
+
+	private static <V> Node<V> predecessor(Node<V> node) {
+		if (node.left != null) {
+			node = node.left;
+			while (node.right != null) {
+				node = node.right;
+			}
+			return node;
+		}
+		while (node.parent != null && node.parent.left == node) {
+			node = node.parent;
+		}
+		return node.parent;
+	}
+
+	/**
+	 * public IntObjAVLTree<V>[] split(int x)
+	 *
+	 * splits the tree into 2 trees according to the key x. Returns an array [t1,
+	 * t2] with two trees, keys(t1) < x < keys(t2). the item
+	 * with key x, if any, is dropped and this tree is left empty. as in
+	 * AVLTree.split, the nodes on the path to x are re-used as join pivots, so
+	 * the work is O(log n).
+	 */
+	public IntObjAVLTree<V>[] split(int x) {
+		@SuppressWarnings("unchecked")
+		IntObjAVLTree<V>[] result = (IntObjAVLTree<V>[]) new IntObjAVLTree<?>[2];
+		result[0] = new IntObjAVLTree<V>();
+		result[1] = new IntObjAVLTree<V>();
+		Node<V> node = this.root;
+		if (node == null) {
+			return result;
+		}
+		while (true) { // down to the node with key x, or the one x would hang from
+			Node<V> next = (x < node.key) ? node.left : (x > node.key) ? node.right : null;
+			if (next == null) {
+				break;
+			}
+			node = next;
+		}
+
+		Node<V> smaller = null; // root of the keys smaller than x
+		Node<V> bigger = null; // root of the keys bigger than x
+		Node<V> pNode = node;
+		if (x == node.key) {
+			smaller = detach(node.left);
+			bigger = detach(node.right);
+			pNode = node.parent;
+		}
+		while (pNode != null) {
+			Node<V> next = pNode.parent;
+			if (pNode.key < x) {
+				smaller = this.joinNodes(detach(pNode.left), pNode, smaller);
+			} else {
+				bigger = this.joinNodes(bigger, pNode, detach(pNode.right));
+			}
+			pNode = next;
+		}
+
+		result[0].setTree(smaller);
+		result[1].setTree(bigger);
+		this.setTree(null);
+		return result;
+	}
+
+	/**
+	 * public int join(int k, V v, IntObjAVLTree<V> t)
+	 *
+	 * joins t and an item with key k and value v with the tree, leaving t empty.
+	 * Returns the complexity of the operation (|tree.rank - t.rank| + 1), as
+	 * AVLTree.join. precondition: keys(t) < k < keys() or keys() < k < keys(t).
+	 */
+	public int join(int k, V v, IntObjAVLTree<V> t) {
+		int valtoreturn = Math.abs(this.getHeight() - t.getHeight()) + 1;
+
+		boolean thisIsLeft;
+		if (!this.empty()) {
+			thisIsLeft = this.root.key < k;
+		} else {
+			thisIsLeft = t.empty() || t.root.key > k;
+		}
+		IntObjAVLTree<V> ltree = thisIsLeft ? this : t;
+		IntObjAVLTree<V> rtree = thisIsLeft ? t : this;
+		Node<V> x = new Node<V>(k, v, null);
+		Node<V> newMin = ltree.empty() ? x : ltree.min;
+		Node<V> newMax = rtree.empty() ? x : rtree.max;
+
+		Node<V> joined = this.joinNodes(ltree.root, x, rtree.root);
+		if (t != this) {
+			t.setTree(null);
+		}
+		this.root = joined;
+		this.min = newMin;
+		this.max = newMax;
+		return valtoreturn;
+	}
+
+	/**
+	 * private Node<V> joinNodes(Node<V> l, Node<V> x, Node<V> r)
+	 *
+	 * joins the detached subtrees l and r (either may be null) with the detached
+	 * node x, where keys(l) < x < keys(r), and returns the root of the result. x
+	 * is hung on the spine of the taller tree at the height of the shorter one
+	 * and rebalanced upward, so heights change in O(|rank(l) - rank(r)| + 1)
+	 * steps; sizes are fixed on the whole spine.
+	 */
+	private Node<V> joinNodes(Node<V> l, Node<V> x, Node<V> r) {
+		int hl = height(l);
+		int hr = height(r);
+		Node<V> parent = null;
+		if (hl > hr + 1) {
+			while (height(l) > hr + 1) { // down the right spine of l
+				parent = l;
+				l = l.right;
+			}
+		} else if (hr > hl + 1) {
+			while (height(r) > hl + 1) { // down the left spine of r
+				parent = r;
+				r = r.left;
+			}
+		}
+		x.left = l;
+		x.right = r;
+		if (l != null) {
+			l.parent = x;
+		}
+		if (r != null) {
+			r.parent = x;
+		}
+		x.parent = parent;
+		x.update();
+		if (parent == null) {
+			return x;
+		}
+		if (hl > hr) {
+			parent.right = x;
+		} else {
+			parent.left = x;
+		}
+
+		Node<V> top = x;
+		for (Node<V> p = parent; p != null; p = p.parent) {
+			int balance = height(p.left) - height(p.right);
+			if (balance > 1 || balance < -1) {
+				p = this.rebalanceNode(p);
+			} else {
+				p.update();
+			}
+			top = p;
+		}
+		return top;
+	}
+
+	private static <V> Node<V> detach(Node<V> node) {
+		if (node != null) {
+			node.parent = null;
+		}
+		return node;
+	}
+
+	// makes the detached subtree root (or nothing, if null) this tree's content
+	private void setTree(Node<V> root) {
+		this.root = root;
+		this.min = root;
+		this.max = root;
+		if (root != null) {
+			while (this.min.left != null) {
+				this.min = this.min.left;
+			}
+			while (this.max.right != null) {
+				this.max = this.max.right;
+			}
+		}
+	}
+
+	/**
+	 * public V min()
+	 *
+	 * Returns the value of the item with the smallest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public V min() {
+		return this.empty() ? null : this.min.value;
+	}
+
+	/**
+	 * public V max()
+	 *
+	 * Returns the value of the item with the largest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public V max() {
+		return this.empty() ? null : this.max.value;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree, or an empty array
+	 * if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		int[] keysArray = new int[this.size()];
+		int i = 0;
+		for (Node<V> node = this.min; node != null; node = successor(node)) {
+			keysArray[i++] = node.key;
+		}
+		return keysArray;
+	}
+
+	/**
+	 * public V[] infoToArray(IntFunction<V[]> generator)
+	 *
+	 * Returns an array which contains all values in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty. generator allocates
+	 * the array for a given length.
+	 */
+	public V[] infoToArray(IntFunction<V[]> generator) {
+		V[] infoArray = generator.apply(this.size());
+		int i = 0;
+		for (Node<V> node = this.min; node != null; node = successor(node)) {
+			infoArray[i++] = node.value;
+		}
+		return infoArray;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of nodes in the tree.
+	 */
+	public int size() {
+		return (this.root == null) ? 0 : this.root.size;
+	}
+
+	// returns the height of the tree, 0 if it's empty
+	public int getHeight() {
+		return (this.root == null) ? 0 : this.root.height - 1;
+	}
+
+	private static int height(Node<?> node) {
+		return (node == null) ? 0 : node.height;
+	}
+
+	private static int size(Node<?> node) {
+		return (node == null) ? 0 : node.size;
+	}
+
+	/**
+	 * class Node
+	 *
+	 * height counts the nodes on the longest path down to a leaf, so a leaf has
+	 * height 1 and a missing (null) child has height 0.
+	 */
+	static final class Node<V> {
+		int key;
+		V value;
+		Node<V> left;
+		Node<V> right;
+		Node<V> parent;
+		int height = 1;
+		int size = 1;
+
+		Node(int key, V value, Node<V> parent) {
+			this.key = key;
+			this.value = value;
+			this.parent = parent;
+		}
+
+		void update() {
+			this.height = 1 + Math.max(height(this.left), height(this.right));
+			this.size = 1 + size(this.left) + size(this.right);
+		}
+	}
+
+}
@@ -0,0 +1,483 @@
+import java.lang.invoke.VarHandle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *
+ * MVCCAVLTree
+ *
+ * A multi-version AVL tree: one writer at a time updates it by path copying
+ * and publishes every new version's root atomically, while any number of
+ * readers each work on a stable version without locking and without slowing
+ * the writer down.
+ *
+ * Every published version has an epoch. A reader pins the current epoch in a
+ * slot and gets a Snapshot of that version; closing the snapshot unpins it. A
+ * node the writer replaced is retired with the epoch of the first version
+ * without it, and once every pinned epoch is at least that (or nothing is
+ * pinned) no reader can reach it any more, so it goes to a free pool that the
+ * writer allocates from. Nodes created by the update in progress aren't
+ * visible to anyone yet, so the writer changes them in place instead of
+ * copying them again.
+ *
+ * The plain reads (search, size) don't take a slot, so they never run out of
+ * them: they walk the current root and check afterwards that the writer
+ * didn't recycle any node meanwhile, retrying if it did and, after a few
+ * tries, reading under the writer's lock. Only pin() is limited by the number
+ * of slots.
+ *
+ */
+public class MVCCAVLTree {
+
+	private static final long FREE = -1; // an unused reader slot
+	private static final int MAX_POOL = 1 << 16;
+	private static final int OPTIMISTIC_TRIES = 8; // before an unpinned read locks
+	private static final int MAX_DEPTH = 64; // deeper than any AVL tree of ints
+
+	private final AtomicLongArray slots; // pinned epochs
+	private volatile Node root = null;
+	private volatile long epoch = 0; // the epoch of root
+	private volatile long recycles = 0; // bumped before retired nodes go to the pool
+
+	// writer state, guarded by this
+	private long writeEpoch; // the epoch of the version being built
+	private boolean changed;
+	private Node removedMin; // set by deleteMin
+	private final ArrayDeque<Node> retired = new ArrayDeque<Node>(); // by ascending retiredAt
+	private final ArrayList<Node> pool = new ArrayList<Node>();
+
+	/**
+	 * public MVCCAVLTree()
+	 *
+	 * creates an empty tree that up to 64 snapshots can pin at a time
+	 */
+	public MVCCAVLTree() {
+		this(64);
+	}
+
+	public MVCCAVLTree(int maxReaders) {
+		this.slots = new AtomicLongArray(maxReaders);
+		for (int i = 0; i < maxReaders; i++) {
+			this.slots.set(i, FREE);
+		}
+	}
+
+	/**
+	 * public Snapshot pin()
+	 *
+	 * pins the current version and returns a view of it, to be closed when done
+	 * (e.g. with try-with-resources). throws IllegalStateException if all reader
+	 * slots are pinned.
+	 */
+	public Snapshot pin() {
+		for (int i = 0; i < this.slots.length(); i++) {
+			long e = this.epoch;
+			if (this.slots.get(i) == FREE && this.slots.compareAndSet(i, FREE, e)) {
+				// root is read after the slot is visible, so its epoch is >= e and the
+				// writer won't recycle any of its nodes
+				return new Snapshot(i, this.root);
+			}
+		}
+		throw new IllegalStateException("all " + this.slots.length() + " reader slots are pinned");
+	}
+
+	/**
+	 * public String search(int k)
+	 *
+	 * returns the info of an item with key k in the current version if it exists,
+	 * otherwise returns null
+	 */
+	public String search(int k) {
+		for (int t = 0; t < OPTIMISTIC_TRIES; t++) {
+			long r = this.recycles;
+			Node node = this.root;
+			String info = null;
+			for (int depth = 0; node != null && depth < MAX_DEPTH; depth++) {
+				if (k == node.key) {
+					info = node.info;
+					break;
+				}
+				node = (k < node.key) ? node.left : node.right;
+			}
+			VarHandle.loadLoadFence();
+			if (this.recycles == r) {
+				return info; // no node was reused, so the walk saw one version
+			}
+		}
+		synchronized (this) {
+			return search(this.root, k);
+		}
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of items in the current version.
+	 */
+	public int size() {
+		for (int t = 0; t < OPTIMISTIC_TRIES; t++) {
+			long r = this.recycles;
+			int size = size(this.root);
+			VarHandle.loadLoadFence();
+			if (this.recycles == r) {
+				return size;
+			}
+		}
+		synchronized (this) {
+			return size(this.root);
+		}
+	}
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the current version is empty
+	 */
+	public boolean empty() {
+		return this.root == null;
+	}
+
+	/**
+	 * public synchronized int insert(int k, String i)
+	 *
+	 * publishes a version with an item with key k and info i added. returns 0, or
+	 * -1 if an item with key k already exists (and nothing is published).
+	 */
+	public synchronized int insert(int k, String i) {
+		this.writeEpoch = this.epoch + 1;
+		this.changed = false;
+		Node newRoot = this.insert(this.root, k, i);
+		if (!this.changed) {
+			return -1;
+		}
+		this.publish(newRoot);
+		return 0;
+	}
+
+	private Node insert(Node node, int k, String i) {
+		if (node == null) {
+			this.changed = true;
+			return this.newNode(k, i);
+		}
+		if (k == node.key) {
+			return node;
+		}
+		if (k < node.key) {
+			Node left = this.insert(node.left, k, i);
+			if (!this.changed) {
+				return node;
+			}
+			node = this.own(node);
+			node.left = left;
+		} else {
+			Node right = this.insert(node.right, k, i);
+			if (!this.changed) {
+				return node;
+			}
+			node = this.own(node);
+			node.right = right;
+		}
+		return this.balance(node);
+	}
+
+	/**
+	 * public synchronized int delete(int k)
+	 *
+	 * publishes a version without the item with key k. returns 0, or -1 if no
+	 * item with key k exists (and nothing is published).
+	 */
+	public synchronized int delete(int k) {
+		this.writeEpoch = this.epoch + 1;
+		this.changed = false;
+		Node newRoot = this.delete(this.root, k);
+		if (!this.changed) {
+			return -1;
+		}
+		this.publish(newRoot);
+		return 0;
+	}
+
+	private Node delete(Node node, int k) {
+		if (node == null) {
+			return null;
+		}
+		if (k == node.key) {
+			this.changed = true;
+			if (node.left == null || node.right == null) {
+				this.retire(node);
+				return (node.left != null) ? node.left : node.right;
+			}
+			// the successor's item takes node's place
+			Node right = this.deleteMin(node.right);
+			Node successor = this.removedMin;
+			node = this.own(node);
+			node.key = successor.key;
+			node.info = successor.info;
+			node.right = right;
+			return this.balance(node);
+		}
+		if (k < node.key) {
+			Node left = this.delete(node.left, k);
+			if (!this.changed) {
+				return node;
+			}
+			node = this.own(node);
+			node.left = left;
+		} else {
+			Node right = this.delete(node.right, k);
+			if (!this.changed) {
+				return node;
+			}
+			node = this.own(node);
+			node.right = right;
+		}
+		return this.balance(node);
+	}
+
+	// removes the min node of node's subtree (saved in removedMin, and retired)
+	private Node deleteMin(Node node) {
+		if (node.left == null) {
+			this.removedMin = node;
+			this.retire(node);
+			return node.right;
+		}
+		Node left = this.deleteMin(node.left);
+		node = this.own(node);
+		node.left = left;
+		return this.balance(node);
+	}
+
+	/**
+	 * private Node balance(Node node)
+	 *
+	 * node belongs to the version being built and its children's heights differ
+	 * by at most 2. fixes node's height and size, rotating if needed, and returns
+	 * the root of its subtree.
+	 */
+	private Node balance(Node node) {
+		int hl = height(node.left);
+		int hr = height(node.right);
+		if (hl > hr + 1) {
+			Node left = this.own(node.left);
+			node.left = left;
+			if (height(left.left) < height(left.right)) {
+				node.left = this.rotateLeft(left);
+			}
+			return this.rotateRight(node);
+		}
+		if (hr > hl + 1) {
+			Node right = this.own(node.right);
+			node.right = right;
+			if (height(right.right) < height(right.left)) {
+				node.right = this.rotateRight(right);
+			}
+			return this.rotateLeft(node);
+		}
+		node.update();
+		return node;
+	}
+
+	// node and its left child belong to the version being built
+	private Node rotateRight(Node node) {
+		Node left = this.own(node.left);
+		node.left = left.right;
+		left.right = node;
+		node.update();
+		left.update();
+		return left;
+	}
+
+	// node and its right child belong to the version being built
+	private Node rotateLeft(Node node) {
+		Node right = this.own(node.right);
+		node.right = right.left;
+		right.left = node;
+		node.update();
+		right.update();
+		return right;
+	}
+
+	// returns node if the version being built created it, otherwise a copy of it
+	// (retiring node)
+	private Node own(Node node) {
+		if (node.birth == this.writeEpoch) {
+			return node;
+		}
+		this.retire(node);
+		Node copy = this.newNode(node.key, node.info);
+		copy.left = node.left;
+		copy.right = node.right;
+		copy.height = node.height;
+		copy.size = node.size;
+		return copy;
+	}
+
+	private Node newNode(int k, String i) {
+		Node node = this.pool.isEmpty() ? new Node() : this.pool.remove(this.pool.size() - 1);
+		node.key = k;
+		node.info = i;
+		node.left = null;
+		node.right = null;
+		node.height = 1;
+		node.size = 1;
+		node.birth = this.writeEpoch;
+		return node;
+	}
+
+	private void retire(Node node) {
+		if (node.birth == this.writeEpoch) {
+			this.pool.add(node); // never published
+			return;
+		}
+		node.retiredAt = this.writeEpoch;
+		this.retired.addLast(node);
+	}
+
+	// makes newRoot the current version, then recycles what no reader can reach
+	private void publish(Node newRoot) {
+		this.root = newRoot;
+		this.epoch = this.writeEpoch;
+
+		long oldest = Long.MAX_VALUE;
+		for (int i = 0; i < this.slots.length(); i++) {
+			long pinned = this.slots.get(i);
+			if (pinned != FREE && pinned < oldest) {
+				oldest = pinned;
+			}
+		}
+		if (!this.retired.isEmpty() && this.retired.peekFirst().retiredAt <= oldest) {
+			// unpinned readers may still be walking these nodes; make them retry
+			this.recycles++;
+			VarHandle.storeStoreFence();
+		}
+		while (!this.retired.isEmpty() && this.retired.peekFirst().retiredAt <= oldest) {
+			Node node = this.retired.pollFirst();
+			if (this.pool.size() < MAX_POOL) {
+				node.left = null; // don't keep old versions alive from the pool
+				node.right = null;
+				node.info = null;
+				this.pool.add(node);
+			}
+		}
+	}
+
+	/**
+	 * public class Snapshot
+	 *
+	 * a pinned version of the tree. it doesn't change while it is open, whatever
+	 * the writer does, and must be used by one thread and closed once.
+	 */
+	public class Snapshot implements AutoCloseable {
+		private final int slot;
+		private final Node root;
+		private boolean closed = false;
+
+		private Snapshot(int slot, Node root) {
+			this.slot = slot;
+			this.root = root;
+		}
+
+		/**
+		 * public String search(int k)
+		 *
+		 * returns the info of an item with key k if it exists in this version
+		 * otherwise, returns null
+		 */
+		public String search(int k) {
+			this.checkOpen();
+			return MVCCAVLTree.search(this.root, k);
+		}
+
+		/**
+		 * public int size()
+		 *
+		 * Returns the number of items in this version.
+		 */
+		public int size() {
+			this.checkOpen();
+			return MVCCAVLTree.size(this.root);
+		}
+
+		/**
+		 * public void forEach(AVLTree.ItemConsumer action)
+		 *
+		 * calls action on every item of this version in key order, without copying
+		 * the tree
+		 */
+		public void forEach(AVLTree.ItemConsumer action) {
+			this.checkOpen();
+			Node node = this.root;
+			Node[] stack = new Node[height(node)];
+			int top = 0;
+			while (node != null || top > 0) {
+				while (node != null) {
+					stack[top++] = node;
+					node = node.left;
+				}
+				node = stack[--top];
+				action.accept(node.key, node.info);
+				node = node.right;
+			}
+		}
+
+		private void checkOpen() {
+			if (this.closed) {
+				throw new IllegalStateException("snapshot is closed");
+			}
+		}
+
+		/**
+		 * public void close()
+		 *
+		 * unpins this version, letting the writer recycle its nodes
+		 */
+		public void close() {
+			if (!this.closed) {
+				this.closed = true;
+				MVCCAVLTree.this.slots.set(this.slot, FREE);
+			}
+		}
+	}
+
+	private static String search(Node node, int k) {
+		while (node != null) {
+			if (k == node.key) {
+				return node.info;
+			}
+			node = (k < node.key) ? node.left : node.right;
+		}
+		return null;
+	}
+
+	private static int height(Node node) {
+		return (node == null) ? 0 : node.height;
+	}
+
+	private static int size(Node node) {
+		return (node == null) ? 0 : node.size;
+	}
+
+	/**
+	 * class Node
+	 *
+	 * a node is only changed by the update that created it (born in its epoch),
+	 * or after it is recycled. a leaf has height 1.
+	 */
+	static final class Node {
+		int key;
+		String info;
+		Node left;
+		Node right;
+		int height;
+		int size;
+		long birth; // the epoch of the version that created it
+		long retiredAt; // the epoch of the first version without it
+
+		void update() {
+			this.height = 1 + Math.max(height(this.left), height(this.right));
+			this.size = 1 + size(this.left) + size(this.right);
+		}
+	}
+
+}
@@ -0,0 +1,248 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *
+ * MappedAVLTree
+ *
+ * A read-only AVL tree searched in place in a file written by
+ * AVLTree.writeTo, through memory-mapped buffers: mapping it reads nothing
+ * but the header, and pages are loaded as searches touch them.
+ *
+ * File layout (big-endian):
+ *
+ * header, HEADER_BYTES: magic, version, node count, root record (-1 if
+ * empty) as ints, then the offset of the values area as a long.
+ *
+ * records, RECORD_BYTES each, in key order (so record i holds the i-th
+ * smallest key): key, left, right, height, size as ints, where left and right
+ * are record numbers (-1 for none) and height and size are as in AVLTree,
+ * then the file offset of the value as a long (-1 for null info).
+ *
+ * values: for every value, its UTF-8 length as an int and then the bytes.
+ *
+ * The file is mapped in chunks of at most 1 GiB, so it may exceed the 2 GiB
+ * a single MappedByteBuffer can hold; chunks of the records area hold whole
+ * records.
+ *
+ */
+public class MappedAVLTree {
+
+	static final int MAGIC = 0x41564C54; // "AVLT"
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 24;
+	static final int RECORD_BYTES = 28;
+
+	private static final int RECORDS_PER_CHUNK = (1 << 30) / RECORD_BYTES;
+	private static final long VALUE_CHUNK_BYTES = 1L << 30;
+
+	private final int count;
+	private final int root;
+	private final long valuesStart;
+	private final MappedByteBuffer[] records;
+	private final MappedByteBuffer[] values;
+
+	private MappedAVLTree(FileChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		while (header.hasRemaining()) {
+			if (channel.read(header, header.position()) < 0) {
+				throw new IOException("truncated AVLTree index header");
+			}
+		}
+		header.flip();
+		if (header.getInt() != MAGIC) {
+			throw new IOException("not an AVLTree index file");
+		}
+		int version = header.getInt();
+		if (version != VERSION) {
+			throw new IOException("unsupported AVLTree index version " + version);
+		}
+		this.count = header.getInt();
+		this.root = header.getInt();
+		this.valuesStart = header.getLong();
+		if (this.count < 0 || this.valuesStart != HEADER_BYTES + (long) this.count * RECORD_BYTES
+				|| this.valuesStart > channel.size()) {
+			throw new IOException("corrupt AVLTree index header");
+		}
+
+		int recordChunks = (this.count + RECORDS_PER_CHUNK - 1) / RECORDS_PER_CHUNK;
+		this.records = new MappedByteBuffer[recordChunks];
+		for (int c = 0; c < recordChunks; c++) {
+			int n = Math.min(RECORDS_PER_CHUNK, this.count - c * RECORDS_PER_CHUNK);
+			long start = HEADER_BYTES + (long) c * RECORDS_PER_CHUNK * RECORD_BYTES;
+			this.records[c] = channel.map(FileChannel.MapMode.READ_ONLY, start, (long) n * RECORD_BYTES);
+		}
+
+		long valueBytes = channel.size() - this.valuesStart;
+		int valueChunks = (int) ((valueBytes + VALUE_CHUNK_BYTES - 1) / VALUE_CHUNK_BYTES);
+		this.values = new MappedByteBuffer[valueChunks];
+		for (int c = 0; c < valueChunks; c++) {
+			long start = c * VALUE_CHUNK_BYTES;
+			long length = Math.min(VALUE_CHUNK_BYTES, valueBytes - start);
+			this.values[c] = channel.map(FileChannel.MapMode.READ_ONLY, this.valuesStart + start, length);
+		}
+	}
+
+	/**
+	 * public static MappedAVLTree map(Path path)
+	 *
+	 * maps the index file at path. The mapping stays valid after the file's
+	 * channel is closed, until the tree is garbage collected.
+	 */
+	public static MappedAVLTree map(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new MappedAVLTree(channel);
+		}
+	}
+
+	// the int field at byte offset field of record i
+	private int field(int i, int field) {
+		return this.records[i / RECORDS_PER_CHUNK].getInt((i % RECORDS_PER_CHUNK) * RECORD_BYTES + field);
+	}
+
+	private int key(int i) {
+		return this.field(i, 0);
+	}
+
+	private int left(int i) {
+		return this.field(i, 4);
+	}
+
+	private int right(int i) {
+		return this.field(i, 8);
+	}
+
+	private String value(int i) {
+		long offset = this.records[i / RECORDS_PER_CHUNK].getLong((i % RECORDS_PER_CHUNK) * RECORD_BYTES + 20);
+		if (offset < 0) {
+			return null;
+		}
+		byte[] length = new byte[4];
+		this.read(offset - this.valuesStart, length);
+		byte[] bytes = new byte[ByteBuffer.wrap(length).getInt()];
+		this.read(offset - this.valuesStart + 4, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// copies dst.length bytes from position pos of the values area, which may
+	// span two chunks
+	private void read(long pos, byte[] dst) {
+		int done = 0;
+		while (done < dst.length) {
+			MappedByteBuffer chunk = this.values[(int) (pos / VALUE_CHUNK_BYTES)];
+			int at = (int) (pos % VALUE_CHUNK_BYTES);
+			int n = Math.min(dst.length - done, chunk.capacity() - at);
+			chunk.get(at, dst, done, n);
+			done += n;
+			pos += n;
+		}
+	}
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return this.count == 0;
+	}
+
+	/**
+	 * public String search(int k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree otherwise,
+	 * returns null
+	 */
+	public String search(int k) {
+		int i = this.root;
+		while (i != -1) {
+			int key = this.key(i);
+			if (k == key) {
+				return this.value(i);
+			}
+			i = (k < key) ? this.left(i) : this.right(i);
+		}
+		return null;
+	}
+
+	/**
+	 * public int select(int i)
+	 *
+	 * Returns the i-th smallest key (counting from 0). records are stored in key
+	 * order, so this is O(1). precondition: 0 <= i < size().
+	 */
+	public int select(int i) {
+		if (i < 0 || i >= this.count) {
+			throw new IndexOutOfBoundsException("no key at rank " + i);
+		}
+		return this.key(i);
+	}
+
+	/**
+	 * public String min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String min() {
+		return this.empty() ? null : this.value(0);
+	}
+
+	/**
+	 * public String max()
+	 *
+	 * Returns the info of the item with the largest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String max() {
+		return this.empty() ? null : this.value(this.count - 1);
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree, or an empty array
+	 * if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		int[] keysArray = new int[this.count];
+		for (int i = 0; i < this.count; i++) {
+			keysArray[i] = this.key(i);
+		}
+		return keysArray;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		String[] infoArray = new String[this.count];
+		for (int i = 0; i < this.count; i++) {
+			infoArray[i] = this.value(i);
+		}
+		return infoArray;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of nodes in the tree.
+	 */
+	public int size() {
+		return this.count;
+	}
+
+	// returns the height of the tree, 0 if it's empty
+	public int getHeight() {
+		return this.empty() ? 0 : this.field(this.root, 12);
+	}
+
+}
@@ -0,0 +1,466 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *
+ * OptimisticAVLTree
+ *
+ * A concurrent AVL tree for read-mostly traffic, after Bronson et al.'s
+ * optimistic AVL tree. search never locks and never writes: it descends hand
+ * over hand, reading each child's version before following it and validating
+ * the parent's version afterwards. A writer that moves a node to a smaller
+ * subtree (the node that goes down in a rotation) marks it SHRINKING for the
+ * duration and then bumps its version, and an unlinked node is marked
+ * UNLINKED, so a reader standing on such a node retries from its parent.
+ *
+ * Writers are serialized by one lock and rebalance with the usual AVL rules
+ * (promote, single and double rotation). Deleting a node with two children
+ * only turns it into a routing node that keeps guiding searches; routing
+ * nodes are unlinked once rebalancing leaves them with at most one child, and
+ * a later insert of the same key revives them.
+ *
+ * min, max, keysToArray and infoToArray don't lock either: they walk the tree
+ * while no writer is active and retry if one started meanwhile (writers keep
+ * a count that is odd while they change the tree). Only if writers keep
+ * interrupting them do they give up after a few tries and walk under the
+ * writers' lock, so a long scan isn't starved by a steady stream of updates.
+ *
+ */
+public class OptimisticAVLTree {
+
+	// version bits: UNLINKED is final, SHRINKING is held during a rotation and
+	// every finished shrink adds VERSION_STEP
+	private static final long UNLINKED = 1;
+	private static final long SHRINKING = 2;
+	private static final long VERSION_STEP = 4;
+
+	// the info of a routing (logically deleted) node, compared by identity
+	private static final String ROUTING = new String();
+
+	// returned by attemptSearch when the reader must go back up
+	private static final Object RETRY = new Object();
+
+	private static final int OPTIMISTIC_TRIES = 8; // before a walk takes the lock
+
+	// holder.right is the root; the holder itself never moves
+	private final Node holder = new Node(Integer.MIN_VALUE, ROUTING, null);
+	private final ReentrantLock writeLock = new ReentrantLock();
+	private volatile int size = 0;
+	private volatile long writes = 0; // odd while a writer changes the tree
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * public String search(int k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree otherwise,
+	 * returns null. never blocks.
+	 */
+	public String search(int k) {
+		while (true) {
+			Node root = this.holder.right;
+			if (root == null) {
+				return null;
+			}
+			long ovl = root.version;
+			if ((ovl & (SHRINKING | UNLINKED)) != 0) {
+				waitUntilChanged(root, ovl);
+				continue;
+			}
+			if (root != this.holder.right) {
+				continue;
+			}
+			Object result = attemptSearch(k, root, ovl);
+			if (result != RETRY) {
+				return (String) result;
+			}
+		}
+	}
+
+	// searches the subtree of node, which was reached with version nodeOVL.
+	// returns RETRY if node changed (so the caller's choice of it is stale)
+	private static Object attemptSearch(int k, Node node, long nodeOVL) {
+		while (true) {
+			if (k == node.key) {
+				String info = node.info;
+				return (info == ROUTING) ? null : info;
+			}
+			Node child = (k < node.key) ? node.left : node.right;
+			if (child == null) {
+				return (node.version != nodeOVL) ? RETRY : null;
+			}
+			long childOVL = child.version;
+			if ((childOVL & (SHRINKING | UNLINKED)) != 0) {
+				waitUntilChanged(child, childOVL);
+				if (node.version != nodeOVL) {
+					return RETRY;
+				}
+				continue;
+			}
+			if (child != ((k < node.key) ? node.left : node.right)) {
+				if (node.version != nodeOVL) {
+					return RETRY;
+				}
+				continue;
+			}
+			if (node.version != nodeOVL) {
+				return RETRY;
+			}
+			Object result = attemptSearch(k, child, childOVL);
+			if (result != RETRY) {
+				return result;
+			}
+			// child moved: re-read it from node
+		}
+	}
+
+	private static void waitUntilChanged(Node node, long version) {
+		if ((version & SHRINKING) == 0) {
+			return; // unlinked nodes don't change again
+		}
+		while (node.version == version) {
+			Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 *
+	 * inserts an item with key k and info i to the tree. returns the number of
+	 * rebalancing operations (counted as in AVLTree.insert), or -1 if an item with
+	 * key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		this.writeLock.lock();
+		this.writes++;
+		try {
+			Node parent = this.holder;
+			Node node = this.holder.right;
+			while (node != null && node.key != k) {
+				parent = node;
+				node = (k < node.key) ? node.left : node.right;
+			}
+			if (node != null) {
+				if (node.info != ROUTING) {
+					return -1;
+				}
+				node.info = i; // revive a routing node
+				this.size++;
+				return 0;
+			}
+
+			node = new Node(k, i, parent);
+			if (parent == this.holder || k > parent.key) {
+				parent.right = node;
+			} else {
+				parent.left = node;
+			}
+			this.size++;
+			return this.fixUp(parent, false);
+		} finally {
+			this.writes++;
+			this.writeLock.unlock();
+		}
+	}
+
+	/**
+	 * public int delete(int k)
+	 *
+	 * deletes an item with key k from the tree if it is there. returns the number
+	 * of rebalancing operations (counted as in AVLTree.delete), or -1 if an item
+	 * with key k was not found in the tree. a node with two children is kept as a
+	 * routing node.
+	 */
+	public int delete(int k) {
+		this.writeLock.lock();
+		this.writes++;
+		try {
+			Node node = this.holder.right;
+			while (node != null && node.key != k) {
+				node = (k < node.key) ? node.left : node.right;
+			}
+			if (node == null || node.info == ROUTING) {
+				return -1;
+			}
+			node.info = ROUTING;
+			this.size--;
+			if (node.left != null && node.right != null) {
+				return 0;
+			}
+			Node parent = node.parent;
+			this.unlink(node);
+			return this.fixUp(parent, true);
+		} finally {
+			this.writes++;
+			this.writeLock.unlock();
+		}
+	}
+
+	// replaces node, which has at most one child, by that child
+	private void unlink(Node node) {
+		Node child = (node.left != null) ? node.left : node.right;
+		Node parent = node.parent;
+		if (child != null) {
+			child.parent = parent;
+		}
+		if (parent.left == node) {
+			parent.left = child;
+		} else {
+			parent.right = child;
+		}
+		node.version = UNLINKED;
+	}
+
+	// walks up from node restoring heights and balance, and unlinking routing
+	// nodes that lost a child. returns the number of rebalancing operations,
+	// counted as in AVLTree.insert or, after a deletion, AVLTree.delete
+	private int fixUp(Node node, boolean deleting) {
+		int single = deleting ? 3 : 2; // the cost of a single rotation
+		int cnt = 0;
+		while (node != this.holder) {
+			Node parent = node.parent;
+			if (node.info == ROUTING && (node.left == null || node.right == null)) {
+				this.unlink(node);
+				node = parent;
+				continue;
+			}
+			int hl = height(node.left);
+			int hr = height(node.right);
+			if (hl - hr > 1) {
+				if (height(node.left.left) < height(node.left.right)) {
+					this.rotateLeft(node.left);
+					cnt += 3;
+				}
+				this.rotateRight(node);
+				cnt += single;
+			} else if (hr - hl > 1) {
+				if (height(node.right.right) < height(node.right.left)) {
+					this.rotateRight(node.right);
+					cnt += 3;
+				}
+				this.rotateLeft(node);
+				cnt += single;
+			} else {
+				int h = 1 + Math.max(hl, hr);
+				if (h == node.height) {
+					break;
+				}
+				node.height = h;
+				cnt++; // promotion or demotion
+			}
+			node = parent;
+		}
+		return cnt;
+	}
+
+	// node goes down to the right of its left child. node's subtree shrinks, so
+	// it is marked for the duration
+	private void rotateRight(Node node) {
+		Node parent = node.parent;
+		Node leftNode = node.left;
+		Node moved = leftNode.right;
+		long version = node.version;
+		node.version = version | SHRINKING;
+
+		node.left = moved;
+		if (moved != null) {
+			moved.parent = node;
+		}
+		leftNode.right = node;
+		node.parent = leftNode;
+		leftNode.parent = parent;
+		if (parent.left == node) {
+			parent.left = leftNode;
+		} else {
+			parent.right = leftNode;
+		}
+		node.height = 1 + Math.max(height(node.left), height(node.right));
+		leftNode.height = 1 + Math.max(height(leftNode.left), node.height);
+
+		node.version = version + VERSION_STEP;
+	}
+
+	// node goes down to the left of its right child
+	private void rotateLeft(Node node) {
+		Node parent = node.parent;
+		Node rightNode = node.right;
+		Node moved = rightNode.left;
+		long version = node.version;
+		node.version = version | SHRINKING;
+
+		node.right = moved;
+		if (moved != null) {
+			moved.parent = node;
+		}
+		rightNode.left = node;
+		node.parent = rightNode;
+		rightNode.parent = parent;
+		if (parent.left == node) {
+			parent.left = rightNode;
+		} else {
+			parent.right = rightNode;
+		}
+		node.height = 1 + Math.max(height(node.left), height(node.right));
+		rightNode.height = 1 + Math.max(node.height, height(rightNode.right));
+
+		node.version = version + VERSION_STEP;
+	}
+
+	/**
+	 * public String min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree, or null if
+	 * the tree is empty.
+	 */
+	public String min() {
+		String[] info = new String[1];
+		return (this.scan(false, null, info, false) == 0) ? null : info[0];
+	}
+
+	/**
+	 * public String max()
+	 *
+	 * Returns the info of the item with the largest key in the tree, or null if
+	 * the tree is empty.
+	 */
+	public String max() {
+		String[] info = new String[1];
+		return (this.scan(true, null, info, false) == 0) ? null : info[0];
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree, or an empty array
+	 * if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		while (true) {
+			int[] keysArray = new int[this.size];
+			if (this.scan(false, keysArray, null, true) >= 0) {
+				return keysArray;
+			}
+		}
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		while (true) {
+			String[] infoArray = new String[this.size];
+			if (this.scan(false, null, infoArray, true) >= 0) {
+				return infoArray;
+			}
+		}
+	}
+
+	/**
+	 * private int scan(boolean descending, int[] keys, String[] infos, boolean whole)
+	 *
+	 * fills keys and infos (either may be null) with the first items in
+	 * ascending or descending key order, until they are full or the items run
+	 * out, and returns how many it filled. tries optimistic walks first, then
+	 * walks under the writers' lock. if whole is set the arrays must hold exactly
+	 * the tree's items, and -2 is returned if the size they were made for is
+	 * stale.
+	 */
+	private int scan(boolean descending, int[] keys, String[] infos, boolean whole) {
+		for (int t = 0; t < OPTIMISTIC_TRIES; t++) {
+			int n = this.walk(descending, keys, infos, whole);
+			if (n != -1) {
+				return n;
+			}
+		}
+		this.writeLock.lock();
+		try {
+			return this.walk(descending, keys, infos, whole); // no writer can start
+		} finally {
+			this.writeLock.unlock();
+		}
+	}
+
+	// one in-order walk for scan, on an explicit stack since readers can't use
+	// parent links. returns -1 as soon as a writer has been active
+	private int walk(boolean descending, int[] keys, String[] infos, boolean whole) {
+		long w = this.writes;
+		if ((w & 1) != 0) {
+			return -1;
+		}
+		int limit = (keys != null) ? keys.length : infos.length;
+		if (whole && limit != this.size) {
+			return (this.writes == w) ? -2 : -1;
+		}
+		ArrayDeque<Node> stack = new ArrayDeque<Node>();
+		Node node = this.holder.right;
+		int n = 0;
+		while (n < limit && (node != null || !stack.isEmpty())) {
+			while (node != null) {
+				stack.push(node);
+				node = descending ? node.right : node.left;
+			}
+			if (this.writes != w) {
+				return -1; // the links read so far may be mid-rotation
+			}
+			node = stack.pop();
+			String info = node.info;
+			if (info != ROUTING) {
+				if (keys != null) {
+					keys[n] = node.key;
+				}
+				if (infos != null) {
+					infos[n] = info;
+				}
+				n++;
+			}
+			node = descending ? node.left : node.right;
+		}
+		return (this.writes == w) ? n : -1;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of items in the tree.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	private static int height(Node node) {
+		return (node == null) ? 0 : node.height;
+	}
+
+	/**
+	 * class Node
+	 *
+	 * the links, height and info are volatile so lock-free readers see a writer's
+	 * changes in order. parent is only used by writers. a leaf has height 1.
+	 */
+	static final class Node {
+		final int key;
+		volatile String info;
+		volatile Node left;
+		volatile Node right;
+		Node parent;
+		volatile int height = 1;
+		volatile long version = 0;
+
+		Node(int key, String info, Node parent) {
+			this.key = key;
+			this.info = info;
+			this.parent = parent;
+		}
+	}
+
+}
@@ -0,0 +1,437 @@
+/**
+ *
+ * PersistentAVLTree
+ *
+ * An AVL tree of int keys and String info whose nodes never change once built.
+ * insert, delete, split and join copy the O(log n) nodes on the path they
+ * change and share the rest, so an older root still describes the tree as it
+ * was. snapshot() is O(1): it returns a tree holding the current root, which
+ * later updates to either tree don't affect, and which can be read from any
+ * thread without locking while the original keeps being written (by one
+ * thread at a time).
+ *
+ * Nodes have no parent pointers (a node can be shared by many versions), so
+ * in-order walks keep their own stack.
+ *
+ */
+public class PersistentAVLTree {
+
+	// volatile so a snapshot taken from another thread sees the latest version
+	private volatile Node root;
+
+	// rebalancing operations done by the current update, see insert
+	private int ops;
+	// set by the current update if it changed the item set
+	private boolean changed;
+	// whether the current update is a delete, whose rotations cost more
+	private boolean deleting;
+
+	public PersistentAVLTree() {
+		this(null);
+	}
+
+	private PersistentAVLTree(Node root) {
+		this.root = root;
+	}
+
+	/**
+	 * public PersistentAVLTree snapshot()
+	 *
+	 * returns a tree with the items of this tree at this moment, in O(1)
+	 */
+	public PersistentAVLTree snapshot() {
+		return new PersistentAVLTree(this.root);
+	}
+
+	/**
+	 * public boolean empty()
+	 *
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return this.root == null;
+	}
+
+	/**
+	 * public String search(int k)
+	 *
+	 * returns the info of an item with key k if it exists in the tree otherwise,
+	 * returns null
+	 */
+	public String search(int k) {
+		Node node = this.root;
+		while (node != null) {
+			if (k == node.key) {
+				return node.info;
+			}
+			node = (k < node.key) ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 *
+	 * inserts an item with key k and info i to the tree by copying the path to
+	 * it. returns the number of rebalancing operations (promotions and rotations,
+	 * counted as in AVLTree.insert), or -1 if an item with key k already exists in
+	 * the tree.
+	 */
+	public int insert(int k, String i) {
+		this.ops = 0;
+		this.changed = false;
+		this.deleting = false;
+		Node newRoot = this.insert(this.root, k, i);
+		if (!this.changed) {
+			return -1;
+		}
+		this.root = newRoot;
+		return this.ops;
+	}
+
+	private Node insert(Node node, int k, String i) {
+		if (node == null) {
+			this.changed = true;
+			return new Node(null, k, i, null);
+		}
+		if (k == node.key) {
+			return node;
+		}
+		Node result;
+		int before;
+		if (k < node.key) {
+			Node left = this.insert(node.left, k, i);
+			if (left == node.left) {
+				return node;
+			}
+			before = this.ops; // rotations below don't count for this level
+			result = this.balance(left, node.key, node.info, node.right);
+		} else {
+			Node right = this.insert(node.right, k, i);
+			if (right == node.right) {
+				return node;
+			}
+			before = this.ops;
+			result = this.balance(node.left, node.key, node.info, right);
+		}
+		if (this.ops == before && result.height != node.height) {
+			this.ops++; // promotion
+		}
+		return result;
+	}
+
+	/**
+	 * public int delete(int k)
+	 *
+	 * deletes an item with key k from the tree by copying the path to it, if it
+	 * is there. returns the number of rebalancing operations (demotions and
+	 * rotations, counted as in AVLTree.delete), or -1 if an item with key k was
+	 * not found in the tree.
+	 */
+	public int delete(int k) {
+		this.ops = 0;
+		this.changed = false;
+		this.deleting = true;
+		Node newRoot = this.delete(this.root, k);
+		if (!this.changed) {
+			return -1;
+		}
+		this.root = newRoot;
+		return this.ops;
+	}
+
+	private Node delete(Node node, int k) {
+		if (node == null) {
+			return null;
+		}
+		Node result;
+		int before;
+		if (k == node.key) {
+			this.changed = true;
+			if (node.left == null) {
+				return node.right;
+			}
+			if (node.right == null) {
+				return node.left;
+			}
+			// the successor takes node's place
+			Node successor = node.right;
+			while (successor.left != null) {
+				successor = successor.left;
+			}
+			Node right = this.deleteMin(node.right);
+			before = this.ops;
+			result = this.balance(node.left, successor.key, successor.info, right);
+		} else if (k < node.key) {
+			Node left = this.delete(node.left, k);
+			if (left == node.left) {
+				return node;
+			}
+			before = this.ops; // rotations below don't count for this level
+			result = this.balance(left, node.key, node.info, node.right);
+		} else {
+			Node right = this.delete(node.right, k);
+			if (right == node.right) {
+				return node;
+			}
+			before = this.ops;
+			result = this.balance(node.left, node.key, node.info, right);
+		}
+		if (this.ops == before && result.height != node.height) {
+			this.ops++; // demotion
+		}
+		return result;
+	}
+
+	private Node deleteMin(Node node) {
+		if (node.left == null) {
+			return node.right;
+		}
+		Node left = this.deleteMin(node.left);
+		int before = this.ops;
+		Node result = this.balance(left, node.key, node.info, node.right);
+		if (this.ops == before && result.height != node.height) {
+			this.ops++; // demotion
+		}
+		return result;
+	}
+
+	/**
+	 * private Node balance(Node l, int k, String i, Node r)
+	 *
+	 * returns a new node for k and i over l and r, whose heights differ by at
+	 * most 2, with a single or double rotation if they differ by 2. a rotation
+	 * is counted in ops as AVLTree counts it after an insertion or a deletion.
+	 */
+	private Node balance(Node l, int k, String i, Node r) {
+		int hl = height(l);
+		int hr = height(r);
+		if (hl > hr + 1) {
+			if (height(l.left) >= height(l.right)) {
+				this.ops += this.deleting ? 3 : 2;
+				return new Node(l.left, l.key, l.info, new Node(l.right, k, i, r));
+			}
+			this.ops += this.deleting ? 6 : 5;
+			Node lr = l.right;
+			return new Node(new Node(l.left, l.key, l.info, lr.left), lr.key, lr.info, new Node(lr.right, k, i, r));
+		}
+		if (hr > hl + 1) {
+			if (height(r.right) >= height(r.left)) {
+				this.ops += this.deleting ? 3 : 2;
+				return new Node(new Node(l, k, i, r.left), r.key, r.info, r.right);
+			}
+			this.ops += this.deleting ? 6 : 5;
+			Node rl = r.left;
+			return new Node(new Node(l, k, i, rl.left), rl.key, rl.info, new Node(rl.right, r.key, r.info, r.right));
+		}
+		return new Node(l, k, i, r);
+	}
+
+	/**
+	 * private Node join(Node l, int k, String i, Node r)
+	 *
+	 * returns a tree of l, the item (k, i) and r, where keys(l) < k < keys(r),
+	 * built by copying the spine of the taller tree down to the height of the
+	 * shorter one. O(|height(l) - height(r)| + 1).
+	 */
+	private Node join(Node l, int k, String i, Node r) {
+		int hl = height(l);
+		int hr = height(r);
+		if (hl > hr + 1) {
+			return this.balance(l.left, l.key, l.info, this.join(l.right, k, i, r));
+		}
+		if (hr > hl + 1) {
+			return this.balance(this.join(l, k, i, r.left), r.key, r.info, r.right);
+		}
+		return new Node(l, k, i, r);
+	}
+
+	/**
+	 * public int join(int k, String i, PersistentAVLTree t)
+	 *
+	 * joins t and the item (k, i) with the tree. precondition: keys(t) < k <
+	 * keys() or keys() < k < keys(t). t itself is not changed. Returns the
+	 * complexity of the operation (|tree.rank - t.rank| + 1).
+	 */
+	public int join(int k, String i, PersistentAVLTree t) {
+		Node mine = this.root;
+		Node other = t.root; // t may be written meanwhile; this is the version joined
+		int complexity = Math.abs(height(mine) - height(other)) + 1;
+		boolean thisIsLeft = (mine != null) ? mine.key < k : (other == null || other.key > k);
+		this.root = thisIsLeft ? this.join(mine, k, i, other) : this.join(other, k, i, mine);
+		return complexity;
+	}
+
+	/**
+	 * public PersistentAVLTree[] split(int x)
+	 *
+	 * returns [t1, t2] with keys(t1) < x < keys(t2), sharing all but O(log n)
+	 * nodes with this tree, which is not changed. x need not be in the tree.
+	 */
+	public PersistentAVLTree[] split(int x) {
+		Node[] parts = this.split(this.root, x);
+		return new PersistentAVLTree[] { new PersistentAVLTree(parts[0]), new PersistentAVLTree(parts[1]) };
+	}
+
+	// returns {smaller, bigger}
+	private Node[] split(Node node, int x) {
+		if (node == null) {
+			return new Node[2];
+		}
+		if (x == node.key) {
+			return new Node[] { node.left, node.right };
+		}
+		Node[] parts;
+		if (x < node.key) {
+			parts = this.split(node.left, x);
+			parts[1] = this.join(parts[1], node.key, node.info, node.right);
+		} else {
+			parts = this.split(node.right, x);
+			parts[0] = this.join(node.left, node.key, node.info, parts[0]);
+		}
+		return parts;
+	}
+
+	/**
+	 * public String min()
+	 *
+	 * Returns the info of the item with the smallest key in the tree, or null if
+	 * the tree is empty. O(log n).
+	 */
+	public String min() {
+		Node node = this.root;
+		if (node == null) {
+			return null;
+		}
+		while (node.left != null) {
+			node = node.left;
+		}
+		return node.info;
+	}
+
+	/**
+	 * public String max()
+	 *
+	 * Returns the info of the item with the largest key in the tree, or null if
+	 * the tree is empty. O(log n).
+	 */
+	public String max() {
+		Node node = this.root;
+		if (node == null) {
+			return null;
+		}
+		while (node.right != null) {
+			node = node.right;
+		}
+		return node.info;
+	}
+
+	/**
+	 * public void forEach(AVLTree.ItemConsumer action)
+	 *
+	 * calls action on every item in key order. the walk sees the version of the
+	 * tree current when it starts, whatever is inserted or deleted meanwhile.
+	 */
+	public void forEach(AVLTree.ItemConsumer action) {
+		Node node = this.root; // read once: the stack is sized for this version
+		Node[] stack = new Node[height(node)];
+		int top = 0;
+		while (node != null || top > 0) {
+			while (node != null) {
+				stack[top++] = node;
+				node = node.left;
+			}
+			node = stack[--top];
+			action.accept(node.key, node.info);
+			node = node.right;
+		}
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 *
+	 * Returns a sorted array which contains all keys in the tree, or an empty array
+	 * if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		Node node = this.root;
+		int[] keysArray = new int[size(node)];
+		fill(node, keysArray, null, 0);
+		return keysArray;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 *
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		Node node = this.root;
+		String[] infoArray = new String[size(node)];
+		fill(node, null, infoArray, 0);
+		return infoArray;
+	}
+
+	// writes node's subtree in order from position pos, returns the next position
+	private static int fill(Node node, int[] keys, String[] info, int pos) {
+		while (node != null) {
+			pos = fill(node.left, keys, info, pos);
+			if (keys != null) {
+				keys[pos] = node.key;
+			} else {
+				info[pos] = node.info;
+			}
+			pos++;
+			node = node.right;
+		}
+		return pos;
+	}
+
+	/**
+	 * public int size()
+	 *
+	 * Returns the number of nodes in the tree.
+	 */
+	public int size() {
+		return size(this.root);
+	}
+
+	// returns the height of the tree, 0 if it's empty
+	public int getHeight() {
+		Node node = this.root;
+		return (node == null) ? 0 : node.height - 1;
+	}
+
+	private static int height(Node node) {
+		return (node == null) ? 0 : node.height;
+	}
+
+	private static int size(Node node) {
+		return (node == null) ? 0 : node.size;
+	}
+
+	/**
+	 * class Node
+	 *
+	 * an immutable node. a leaf has height 1 and a missing (null) child height 0.
+	 */
+	static final class Node {
+		final int key;
+		final String info;
+		final Node left;
+		final Node right;
+		final int height;
+		final int size;
+
+		Node(Node left, int key, String info, Node right) {
+			this.key = key;
+			this.info = info;
+			this.left = left;
+			this.right = right;
+			this.height = 1 + Math.max(height(left), height(right));
+			this.size = 1 + size(left) + size(right);
+		}
+	}
+
+}